@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.benchmarks;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.fedoraproject.p2.FedoraArtifactRepository;
+import org.fedoraproject.p2.FedoraBundleIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Serving of bundles by artifact repository. Jar-shaped bundles are copied,
+ * directory-shaped bundles are packed into a jar on the fly.
+ */
+public class ArtifactRepositoryBenchmark extends RepositoryBenchmark {
+	private static final int SAMPLE_SIZE = 50;
+
+	@Param({ "jar", "dir" })
+	private String shape;
+
+	private FedoraArtifactRepository repository;
+
+	private final List<IArtifactDescriptor> descriptors = new ArrayList<>();
+
+	@Override
+	protected void setUp() {
+		repository = new FedoraArtifactRepository(null, URI.create("fedora:"
+				+ root));
+		FedoraBundleIndex index = new FedoraBundleIndex(root.toFile());
+		boolean dirShaped = shape.equals("dir");
+		descriptors.clear();
+		for (IArtifactKey key : index.getAllArtifactKeys()) {
+			File file = index.getFileForKey(key);
+			if (key.getClassifier().equals("osgi.bundle")
+					&& file.isDirectory() == dirShaped
+					&& descriptors.size() < SAMPLE_SIZE)
+				descriptors.add(repository.createArtifactDescriptor(key));
+		}
+	}
+
+	@Benchmark
+	public int getArtifact() {
+		int served = 0;
+		for (IArtifactDescriptor descriptor : descriptors) {
+			if (repository.getArtifact(descriptor,
+					OutputStream.nullOutputStream(), new NullProgressMonitor())
+					.isOK())
+				served++;
+		}
+		return served;
+	}
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.benchmarks;
+
+import org.fedoraproject.p2.FedoraBundleIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Scanning of a directory tree for bundles and features.
+ */
+public class BundleIndexBenchmark extends RepositoryBenchmark {
+	@Benchmark
+	public int scan() {
+		return new FedoraBundleIndex(root.toFile()).getAllArtifactKeys()
+				.size();
+	}
+}
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.benchmarks;
+
+import java.net.URI;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.fedoraproject.p2.FedoraMetadataRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Creation of installable units for all bundles and features of a repository,
+ * including the index scan it requires.
+ */
+public class MetadataRepositoryBenchmark extends RepositoryBenchmark {
+	private URI location;
+
+	@Override
+	protected void setUp() {
+		location = URI.create("fedora:" + root);
+	}
+
+	@Benchmark
+	public int createUnits() {
+		return new FedoraMetadataRepository(null, location)
+				.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor())
+				.toUnmodifiableSet().size();
+	}
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Common setup of benchmarks operating on synthetic repository on disk. Size
+ * of the repository is controlled by JMH parameters, for example
+ * {@code -p bundles=10000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public abstract class RepositoryBenchmark {
+	protected static final long SEED = 42;
+
+	@Param("1000")
+	protected int bundles;
+
+	@Param("100")
+	protected int features;
+
+	@Param("4")
+	protected int fanOut;
+
+	protected Path root;
+
+	@Setup
+	public void generateRepository() throws IOException {
+		root = Files.createTempDirectory("fedora-p2-bench-");
+		new SyntheticRepository(SEED, fanOut).generate(root, bundles, features);
+		setUp();
+	}
+
+	/**
+	 * Prepare benchmark state once the repository was generated.
+	 */
+	protected void setUp() {
+	}
+
+	@TearDown
+	public void deleteRepository() throws IOException {
+		SyntheticRepository.delete(root);
+	}
+}
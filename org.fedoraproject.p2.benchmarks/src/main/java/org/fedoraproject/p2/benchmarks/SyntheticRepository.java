@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.VersionRange;
+
+/**
+ * Generates reproducible synthetic repositories. The same seed and sizes
+ * always produce the same bundles, features and dependency graph.
+ */
+public class SyntheticRepository {
+	private static final String VERSION = "1.0.0";
+
+	// Every n-th bundle is a directory-shaped bundle
+	private static final int DIR_SHAPED_RATIO = 10;
+
+	private static final int ENTRIES_PER_BUNDLE = 8;
+
+	private static final int ENTRY_SIZE = 1024;
+
+	private final Random random;
+
+	private final int fanOut;
+
+	public SyntheticRepository(long seed, int fanOut) {
+		this.random = new Random(seed);
+		this.fanOut = fanOut;
+	}
+
+	public static String bundleId(int i) {
+		return "org.example.bundle" + i;
+	}
+
+	/**
+	 * Pick up to {@code fanOut} distinct random numbers lower than
+	 * {@code bound}.
+	 */
+	public Collection<Integer> pick(int bound) {
+		Set<Integer> result = new LinkedHashSet<>();
+		for (int i = 0; i < fanOut && i < bound; i++)
+			result.add(random.nextInt(bound));
+		return result;
+	}
+
+	/**
+	 * Write {@code bundles} bundles into {@code plugins} and {@code features}
+	 * features into {@code features} directory under given root. Each bundle
+	 * requires a few bundles with lower numbers, each feature includes a few
+	 * bundles.
+	 */
+	public void generate(Path root, int bundles, int features)
+			throws IOException {
+		Path pluginsDir = Files.createDirectories(root.resolve("plugins"));
+		Path featuresDir = Files.createDirectories(root.resolve("features"));
+
+		for (int i = 0; i < bundles; i++) {
+			List<String> requires = new ArrayList<>();
+			for (int j : pick(i))
+				requires.add(bundleId(j));
+			if (i % DIR_SHAPED_RATIO == 0)
+				writeDirBundle(pluginsDir, bundleId(i), requires);
+			else
+				writeJarBundle(pluginsDir, bundleId(i), requires);
+		}
+
+		for (int i = 0; i < features; i++) {
+			String id = "org.example.feature" + i;
+			Path dir = Files.createDirectories(featuresDir.resolve(id + "_"
+					+ VERSION));
+			StringBuilder sb = new StringBuilder();
+			sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+			sb.append("<feature id=\"" + id + "\" version=\"" + VERSION
+					+ "\">\n");
+			for (int j : pick(bundles))
+				sb.append("  <plugin id=\"" + bundleId(j) + "\" version=\""
+						+ VERSION + "\"/>\n");
+			sb.append("</feature>\n");
+			Files.write(dir.resolve("feature.xml"),
+					sb.toString().getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private Manifest createManifest(String id, List<String> requires,
+			boolean dirShaped) {
+		Manifest mf = new Manifest();
+		Attributes attributes = mf.getMainAttributes();
+		attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		attributes.putValue("Bundle-ManifestVersion", "2");
+		attributes.putValue("Bundle-SymbolicName", id);
+		attributes.putValue("Bundle-Version", VERSION);
+		attributes.putValue("Export-Package", id);
+		if (!requires.isEmpty())
+			attributes.putValue("Require-Bundle", String.join(",", requires));
+		if (dirShaped)
+			attributes.putValue("Eclipse-BundleShape", "dir");
+		return mf;
+	}
+
+	private byte[] payload() {
+		byte[] content = new byte[ENTRY_SIZE];
+		random.nextBytes(content);
+		return content;
+	}
+
+	private void writeJarBundle(Path dir, String id, List<String> requires)
+			throws IOException {
+		Path jar = dir.resolve(id + "_" + VERSION + ".jar");
+		try (OutputStream os = Files.newOutputStream(jar);
+				JarOutputStream jos = new JarOutputStream(os, createManifest(
+						id, requires, false))) {
+			for (int i = 0; i < ENTRIES_PER_BUNDLE; i++) {
+				jos.putNextEntry(new JarEntry(id.replace('.', '/') + "/C" + i
+						+ ".class"));
+				jos.write(payload());
+				jos.closeEntry();
+			}
+		}
+	}
+
+	private void writeDirBundle(Path dir, String id, List<String> requires)
+			throws IOException {
+		Path bundle = dir.resolve(id + "_" + VERSION);
+		Path metaInf = Files.createDirectories(bundle.resolve("META-INF"));
+		try (OutputStream os = Files.newOutputStream(metaInf
+				.resolve("MANIFEST.MF"))) {
+			createManifest(id, requires, true).write(os);
+		}
+		Path pkg = Files.createDirectories(bundle.resolve(id.replace('.', '/')));
+		for (int i = 0; i < ENTRIES_PER_BUNDLE; i++)
+			Files.write(pkg.resolve("C" + i + ".class"), payload());
+	}
+
+	/**
+	 * Create installable unit providing bundle capability and requiring given
+	 * bundles, without going through the publisher.
+	 */
+	public static IInstallableUnit createUnit(String id,
+			Collection<String> requires) {
+		Version version = Version.create(VERSION);
+		InstallableUnitDescription desc = new InstallableUnitDescription();
+		desc.setId(id);
+		desc.setVersion(version);
+		desc.setCapabilities(new IProvidedCapability[] { MetadataFactory
+				.createProvidedCapability("osgi.bundle", id, version) });
+		List<IRequirement> requirements = new ArrayList<>();
+		for (String req : requires)
+			requirements.add(MetadataFactory.createRequirement("osgi.bundle",
+					req, VersionRange.emptyRange, null, false, false));
+		desc.setRequirements(requirements.toArray(new IRequirement[0]));
+		return MetadataFactory.createInstallableUnit(desc);
+	}
+
+	public static void delete(Path root) throws IOException {
+		if (!Files.exists(root))
+			return;
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException e)
+					throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.fedoraproject.p2.IFedoraBundleRepository;
+import org.fedoraproject.p2.benchmarks.SyntheticRepository;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Common setup of benchmarks of installer dependency resolution. Units are
+ * created in memory: system units are spread evenly among platform, internal
+ * and external units and reactor units are spread among packages, with some
+ * cyclic dependencies within packages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public abstract class InstallerBenchmark {
+	private static final long SEED = 42;
+
+	// Every n-th reactor unit forms a cycle with unit in the same package
+	private static final int CYCLE_RATIO = 20;
+
+	@Param("10000")
+	protected int systemBundles;
+
+	@Param("200")
+	protected int reactorBundles;
+
+	@Param("4")
+	protected int packageCount;
+
+	@Param("4")
+	protected int fanOut;
+
+	protected Set<IInstallableUnit> reactor;
+
+	protected IFedoraBundleRepository index;
+
+	protected Map<String, Set<IInstallableUnit>> packages;
+
+	@Setup
+	public void createUnits() {
+		SyntheticRepository generator = new SyntheticRepository(SEED, fanOut);
+
+		Set<IInstallableUnit> platform = new LinkedHashSet<>();
+		Set<IInstallableUnit> internal = new LinkedHashSet<>();
+		Set<IInstallableUnit> external = new LinkedHashSet<>();
+		List<Set<IInstallableUnit>> tiers = List.of(platform, internal,
+				external);
+		for (int i = 0; i < systemBundles; i++) {
+			List<String> requires = new ArrayList<>();
+			for (int j : generator.pick(i))
+				requires.add(SyntheticRepository.bundleId(j));
+			tiers.get(i % tiers.size()).add(
+					SyntheticRepository.createUnit(
+							SyntheticRepository.bundleId(i), requires));
+		}
+		index = new IFedoraBundleRepository() {
+			@Override
+			public Set<IInstallableUnit> getPlatformUnits() {
+				return platform;
+			}
+
+			@Override
+			public Set<IInstallableUnit> getInternalUnits() {
+				return internal;
+			}
+
+			@Override
+			public Set<IInstallableUnit> getExternalUnits() {
+				return external;
+			}
+		};
+
+		reactor = new LinkedHashSet<>();
+		packages = new LinkedHashMap<>();
+		for (int i = 0; i < reactorBundles; i++) {
+			List<String> requires = new ArrayList<>();
+			for (int j : generator.pick(systemBundles))
+				requires.add(SyntheticRepository.bundleId(j));
+			for (int j : generator.pick(i))
+				requires.add(reactorId(j));
+			if (i % CYCLE_RATIO == 0 && i + packageCount < reactorBundles)
+				requires.add(reactorId(i + packageCount));
+			if (i % CYCLE_RATIO == packageCount % CYCLE_RATIO
+					&& i >= packageCount)
+				requires.add(reactorId(i - packageCount));
+
+			IInstallableUnit unit = SyntheticRepository.createUnit(
+					reactorId(i), requires);
+			reactor.add(unit);
+			String name = i % packageCount == 0 ? "main" : "sub"
+					+ (i % packageCount);
+			packages.computeIfAbsent(name, n -> new LinkedHashSet<>())
+					.add(unit);
+		}
+		reactor = Collections.unmodifiableSet(reactor);
+	}
+
+	private static String reactorId(int i) {
+		return "org.example.reactor" + i;
+	}
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Detection of strongly connected components, splitting and expansion of
+ * metapackages produced by dependency resolution. Metapackages are modified
+ * in place, so they are resolved again before every invocation.
+ */
+public class PackageBenchmark extends InstallerBenchmark {
+	private Set<Package> metapackages;
+
+	@Setup(Level.Invocation)
+	public void resolve() {
+		metapackages = new DefaultEclipseInstaller().resolve(reactor, index,
+				packages);
+	}
+
+	@Benchmark
+	public Set<Package> scc() {
+		Package.detectStrongComponents(metapackages);
+		return metapackages;
+	}
+
+	@Benchmark
+	public Set<Package> sccSplitExpand() {
+		Package.detectStrongComponents(metapackages);
+		Package.splitSplittable(metapackages);
+		Package.expandVirtualPackages(metapackages, "main");
+		return metapackages;
+	}
+}
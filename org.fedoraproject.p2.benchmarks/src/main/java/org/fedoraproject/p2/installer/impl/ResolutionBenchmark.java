@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Resolution of requirements of reactor units against system units, including
+ * transitive requirements of external units.
+ */
+public class ResolutionBenchmark extends InstallerBenchmark {
+	@Benchmark
+	public Set<Package> resolve() {
+		return new DefaultEclipseInstaller().resolve(reactor, index, packages);
+	}
+}
@@ -17,7 +17,9 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ ArtifactRepositoryTest.class, MetadataRepositoryTest.class, InstallTest.class,
 	MirrorTest.class, FedoraBundleRepositoryTest.class, InstallerTest.class,
-	CompoundBundleRepositoryTest.class, EclipseSystemLayoutTest.class })
+	CompoundBundleRepositoryTest.class, EclipseSystemLayoutTest.class,
+	RepositoryGeneratorTest.class, ScaleTest.class, RepositoryExportTest.class,
+		RepositoryServerTest.class, P2UtilsTest.class })
 public class AllTests {
 
 }
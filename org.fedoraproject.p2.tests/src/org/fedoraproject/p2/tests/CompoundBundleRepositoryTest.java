@@ -14,15 +14,21 @@ import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Properties;
 
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.junit.Before;
@@ -204,4 +210,59 @@ public class CompoundBundleRepositoryTest extends RepositoryTest {
 		addExternalPlugin("java-common", "org.junit", "1.0.0", true);
 		performTest("devtoolset", "java-common");
 	}
+
+	// If a bundle installed in one of several droplets is symlinked into
+	// external location, then it should be considered internal only
+	@Test
+	public void symlinkedFromDropletTest() throws Exception {
+		addInternalPlugin("foo", "bar", true);
+		Path bundle = addPlugin(
+				"usr/share/eclipse/droplets/other-droplet/plugins", "foo",
+				"baz", "1.0.0");
+		visitor.visitInternalPlugin("baz", "1.0.0");
+		expectLastCall();
+		Path javaDir = getTempDir().resolve("foo/usr/share/java");
+		Files.createDirectories(javaDir);
+		Files.createSymbolicLink(javaDir.resolve("baz.jar"), bundle);
+		performTest("foo");
+	}
+
+	// Bundle location shared by two SCLs should be loaded only once, as part
+	// of the SCL with higher priority
+	@Test
+	public void sharedLocationTest() throws Exception {
+		addExternalPlugin("base", "p", "1.0.0", true);
+		Path sharedDir = getTempDir().resolve("base/usr/share/java");
+
+		List<SCL> scls = new ArrayList<>();
+		for (String name : Arrays.asList("scl", "base")) {
+			Path prefix = getTempDir().resolve(name);
+			Path confPath = prefix.resolve("eclipse.conf");
+			writeSclConfig(confPath, name, prefix);
+			Properties conf = new Properties();
+			try (InputStream stream = Files.newInputStream(confPath)) {
+				conf.load(stream);
+			}
+			conf.setProperty("eclipse.bundles", prefix.resolve("usr/share/java")
+					+ "," + sharedDir);
+			try (OutputStream stream = Files.newOutputStream(confPath)) {
+				conf.store(stream, null);
+			}
+			scls.add(new SCL(confPath));
+		}
+
+		IFedoraBundleRepository repo = new CompoundBundleRepository(scls);
+		replay(visitor);
+		for (IInstallableUnit unit : repo.getExternalUnits()) {
+			assertEquals("scl", P2Utils.getSclNamespace(unit));
+			visitor.visitExternalPlugin(unit.getId(), unit.getVersion()
+					.toString(), P2Utils.getPath(unit));
+		}
+		verify(visitor);
+
+		assertTrue(getMetadataRepoManager().contains(
+				new URI("fedora:" + sharedDir + "#scl")));
+		assertFalse(getMetadataRepoManager().contains(
+				new URI("fedora:" + sharedDir + "#base")));
+	}
 }
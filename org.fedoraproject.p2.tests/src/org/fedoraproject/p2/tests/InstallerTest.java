@@ -14,8 +14,10 @@ import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -30,6 +32,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Before;
 import org.junit.Ignore;
@@ -423,6 +426,19 @@ public class InstallerTest extends RepositoryTest {
 		assertTrue(Files.isDirectory(dir, LinkOption.NOFOLLOW_LINKS));
 	}
 
+	// Jar-shaped plugin is linked rather than copied when possible
+	@Test
+	public void hardlinkedPluginTest() throws Exception {
+		addReactorPlugin("foo");
+		expectPlugin("foo");
+		expectProvides("foo");
+		performTest();
+		Path jar = buildRoot.resolve(Paths.get("/")
+				.relativize(scl.getNoarchDropletDir())
+				.resolve("main/plugins/foo_1.0.0.jar"));
+		assertTrue(Files.isSameFile(reactor.resolve("foo_1.0.0.jar"), jar));
+	}
+
 	// Two plugins manually assigned to subpackages, third implicitly installed
 	// to main pkg
 	@Test
@@ -439,6 +455,68 @@ public class InstallerTest extends RepositoryTest {
 		performTest();
 	}
 
+	// Listener is notified about each dropin after its files are installed
+	@Test
+	public void listenerTest() throws Exception {
+		addReactorPlugin("foo").assignToTargetPackage("sub1");
+		addReactorPlugin("bar").assignToTargetPackage("sub2");
+		addReactorPlugin("baz");
+		expectPlugin("sub1", "foo");
+		expectPlugin("sub2", "bar");
+		expectPlugin("baz");
+		expectProvides("sub1", "foo");
+		expectProvides("sub2", "bar");
+		expectProvides("baz");
+		Map<String, Boolean> notified = new ConcurrentHashMap<>();
+		request.setListener((dropin, duration) -> {
+			boolean installed = duration >= 0;
+			for (EclipseArtifact provide : dropin.getOsgiProvides())
+				installed &= Files.exists(buildRoot.resolve(Paths.get("/")
+						.relativize(provide.getInstalledPath())));
+			assertNull(notified.put(dropin.getId(), installed));
+		});
+		performTest();
+		assertEquals(3, notified.size());
+		assertFalse(notified.containsValue(false));
+	}
+
+	@Test
+	public void metricsReportTest() throws Exception {
+		addReactorPlugin("A").requireBundle("B");
+		addReactorPlugin("B");
+		expectPlugin("A");
+		expectPlugin("B");
+		expectProvides("A");
+		expectProvides("B");
+		Path report = getTempDir().resolve("metrics.json");
+		request.setMetricsReport(report);
+		performTest();
+		assertTrue(Files.isRegularFile(report));
+		String json = new String(Files.readAllBytes(report), "UTF-8");
+		assertTrue(json.contains("\"name\": \"publish\""));
+		assertTrue(json.contains("\"name\": \"materialize main\""));
+		assertTrue(json.contains("\"requirements.reactor\": 1"));
+		assertTrue(json.contains("\"reactor.units\": 2"));
+	}
+
+	@Test
+	public void failedInstallationReportTest() throws Exception {
+		addReactorPlugin("A").requireBundle("B").assignToTargetPackage("sub1");
+		addReactorPlugin("B");
+		addReactorPlugin("C").requireBundle("B").assignToTargetPackage("sub2");
+		Path report = getTempDir().resolve("metrics.json");
+		request.setMetricsReport(report);
+		try {
+			performTest();
+			fail("Installation was expected to fail");
+		} catch (RuntimeException e) {
+		}
+		String json = new String(Files.readAllBytes(report), "UTF-8");
+		assertTrue(json.contains("\"name\": \"publish\""));
+		assertTrue(json.contains("\"name\": \"total\""));
+		assertTrue(json.contains("\"reactor.units\": 3"));
+	}
+
 	// Plugin B is required by A, hence it is getting installed in subpackage
 	// together with A.
 	@Test
@@ -968,4 +1046,74 @@ public class InstallerTest extends RepositoryTest {
 		expectRequires("B", "a");
 		performTest();
 	}
+
+	// System repository snapshot is written to cache directory and reused by
+	// subsequent installations
+	@Test
+	public void systemRepositorySnapshotTest() throws Exception {
+		Path cache = getTempDir().resolve("cache");
+		request.setCacheDirectory(cache);
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		expectPlugin("my-plugin");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("my-plugin");
+		performTest();
+
+		List<Path> snapshots = new ArrayList<>();
+		for (Path snapshot : Files.newDirectoryStream(cache.resolve("system")))
+			snapshots.add(snapshot);
+		assertEquals(1, snapshots.size());
+
+		EclipseInstallationRequest dryRun = new EclipseInstallationRequest();
+		dryRun.setMainPackageId("main");
+		dryRun.setCacheDirectory(cache);
+		dryRun.addConfigFile(getTempDir().resolve("eclipse.conf"));
+		EclipseArtifact artifact = new EclipseArtifact(
+				reactor.resolve("my-plugin_1.0.0.jar"), false, false);
+		dryRun.addArtifact(artifact);
+		installer.performInstallation(dryRun);
+		assertEquals("org.apache.commons.io",
+				artifact.getProperties().get("osgi.requires"));
+	}
+
+	@Test
+	public void reactorPublishCacheTest() throws Exception {
+		Path cache = getTempDir().resolve("cache");
+		request.setCacheDirectory(cache);
+		addCommonsBundles();
+		addReactorPlugin("my-plugin").requireBundle("org.apache.commons.io");
+		expectPlugin("my-plugin");
+		expectSymlink("org.apache.commons.io");
+		expectRequires("org.apache.commons.io");
+		expectProvides("my-plugin");
+		performTest();
+
+		List<Path> entries = new ArrayList<>();
+		for (Path entry : Files.newDirectoryStream(cache.resolve("publish")))
+			entries.add(entry);
+		assertEquals(1, entries.size());
+
+		// Cached metadata must be reused for the same plugin at another path
+		Path copy = getTempDir().resolve("copy");
+		Files.createDirectories(copy);
+		Files.copy(reactor.resolve("my-plugin_1.0.0.jar"),
+				copy.resolve("my-plugin_1.0.0.jar"));
+		EclipseInstallationRequest dryRun = new EclipseInstallationRequest();
+		dryRun.setMainPackageId("main");
+		dryRun.setCacheDirectory(cache);
+		dryRun.addConfigFile(getTempDir().resolve("eclipse.conf"));
+		EclipseArtifact artifact = new EclipseArtifact(
+				copy.resolve("my-plugin_1.0.0.jar"), false, false);
+		dryRun.addArtifact(artifact);
+		installer.performInstallation(dryRun);
+		assertEquals("org.apache.commons.io",
+				artifact.getProperties().get("osgi.requires"));
+
+		entries.clear();
+		for (Path entry : Files.newDirectoryStream(cache.resolve("publish")))
+			entries.add(entry);
+		assertEquals(1, entries.size());
+	}
 }
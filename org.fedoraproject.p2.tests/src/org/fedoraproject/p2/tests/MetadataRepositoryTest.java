@@ -11,20 +11,41 @@
 package org.fedoraproject.p2.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.core.IPool;
+import org.eclipse.equinox.p2.core.StrongPool;
 import org.eclipse.equinox.p2.metadata.IArtifactKey;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.fedoraproject.p2.Activator;
+import org.fedoraproject.p2.BundleIndexGenerator;
+import org.fedoraproject.p2.FedoraBundleIndex;
 import org.fedoraproject.p2.FedoraMetadataRepository;
 import org.fedoraproject.p2.P2Utils;
 import org.junit.Test;
@@ -185,4 +206,241 @@ public class MetadataRepositoryTest extends RepositoryTest {
         }
 	}
 
+	private IMetadataRepository createRepository(Path dir, String... ids)
+			throws Exception {
+		Files.createDirectories(dir);
+		for (String id : ids) {
+			Plugin plugin = new Plugin(id, "1.0.0");
+			plugin.importPackage("org.osgi.framework");
+			plugin.writeBundle(dir.resolve(id + ".jar"));
+		}
+		return getMetadataRepoManager().loadRepository(
+				new URI("fedora:" + dir), new NullProgressMonitor());
+	}
+
+	private IInstallableUnit getUnit(IMetadataRepository repo, String id) {
+		Set<IInstallableUnit> units = repo.query(QueryUtil.createIUQuery(id),
+				new NullProgressMonitor()).toUnmodifiableSet();
+		assertEquals(1, units.size());
+		return units.iterator().next();
+	}
+
+	// Equal requirements and capabilities of different units are shared
+	@Test
+	public void sharedRequirementsTest() throws Exception {
+		IMetadataRepository repo = createRepository(getTempDir(), "foo", "bar");
+		IInstallableUnit foo = getUnit(repo, "foo");
+		IInstallableUnit bar = getUnit(repo, "bar");
+
+		List<IRequirement> fooReqs = new ArrayList<>(foo.getRequirements());
+		List<IRequirement> barReqs = new ArrayList<>(bar.getRequirements());
+		assertEquals(1, fooReqs.size());
+		assertSame(fooReqs.get(0), barReqs.get(0));
+
+		int shared = 0;
+		for (IProvidedCapability fooCap : foo.getProvidedCapabilities()) {
+			for (IProvidedCapability barCap : bar.getProvidedCapabilities()) {
+				if (fooCap.equals(barCap)) {
+					assertSame(fooCap, barCap);
+					shared++;
+				}
+			}
+		}
+		assertTrue(shared > 0);
+	}
+
+	// Symlinks to the same bundle yield single unit
+	@Test
+	public void symlinkedBundleTest() throws Exception {
+		Path dir = getTempDir();
+		Path jar = dir.resolve("foo_1.0.0.jar");
+		new Plugin("foo", "1.0.0").writeBundle(jar);
+		Files.createSymbolicLink(dir.resolve("foo.jar"), jar);
+		Files.createDirectories(dir.resolve("sub"));
+		Files.createSymbolicLink(dir.resolve("sub/foo.jar"), jar);
+		IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+				new URI("fedora:" + dir), new NullProgressMonitor());
+		IInstallableUnit unit = getUnit(repo, "foo");
+		assertEquals(jar.toRealPath(), P2Utils.getPath(unit).toRealPath());
+	}
+
+	@Test
+	public void excludeTest() throws Exception {
+		Path dir = getTempDir();
+		new Plugin("foo", "1.0.0").writeBundle(dir.resolve("foo.jar"));
+		Files.createDirectories(dir.resolve("javadoc/api"));
+		new Plugin("bar", "1.0.0").writeBundle(dir.resolve("javadoc/api/bar.jar"));
+		new Plugin("baz", "1.0.0").writeBundle(dir.resolve("baz-sources.jar"));
+		System.setProperty(FedoraBundleIndex.EXCLUDE_PROPERTY, "javadoc,**-sources.jar");
+		try {
+			IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+					new URI("fedora:" + dir), new NullProgressMonitor());
+			getUnit(repo, "foo");
+			assertTrue(repo.query(QueryUtil.createIUQuery("bar"), new NullProgressMonitor()).isEmpty());
+			assertTrue(repo.query(QueryUtil.createIUQuery("baz"), new NullProgressMonitor()).isEmpty());
+		} finally {
+			System.clearProperty(FedoraBundleIndex.EXCLUDE_PROPERTY);
+		}
+	}
+
+	// Location-specific patterns don't apply to other locations
+	@Test
+	public void locationExcludeTest() throws Exception {
+		Path dir = getTempDir().resolve("excluding");
+		Path other = getTempDir().resolve("other");
+		Files.createDirectories(dir);
+		Files.createDirectories(other);
+		new Plugin("foo", "1.0.0").writeBundle(dir.resolve("foo.jar"));
+		new Plugin("bar", "1.0.0").writeBundle(dir.resolve("bar-sources.jar"));
+		new Plugin("baz", "1.0.0").writeBundle(other.resolve("baz-sources.jar"));
+		String property = FedoraBundleIndex.EXCLUDE_PROPERTY + "." + dir.toAbsolutePath();
+		System.setProperty(property, "**-sources.jar");
+		try {
+			IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+					new URI("fedora:" + dir), new NullProgressMonitor());
+			getUnit(repo, "foo");
+			assertTrue(repo.query(QueryUtil.createIUQuery("bar"), new NullProgressMonitor()).isEmpty());
+			repo = getMetadataRepoManager().loadRepository(
+					new URI("fedora:" + other), new NullProgressMonitor());
+			getUnit(repo, "baz");
+		} finally {
+			System.clearProperty(property);
+		}
+	}
+
+	private static void writeNonBundle(Path jar) throws Exception {
+		Manifest mf = new Manifest();
+		mf.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		try (OutputStream os = Files.newOutputStream(jar)) {
+			new JarOutputStream(os, mf).close();
+		}
+	}
+
+	private static boolean isCachedNonBundleLocation(Path dir) throws Exception {
+		Path file = Activator.getContext().getDataFile("non-bundles.txt").toPath();
+		String suffix = " " + dir.toAbsolutePath();
+		return Files.exists(file) && Files.readAllLines(file).stream()
+				.anyMatch(line -> line.endsWith(suffix));
+	}
+
+	// Entries of removed jars are dropped from cache of non-bundles
+	@Test
+	public void prunedNonBundleTest() throws Exception {
+		Path dir = getTempDir().resolve("repo");
+		Files.createDirectories(dir);
+		Path jar = dir.resolve("foo.jar");
+		writeNonBundle(jar);
+		URI uri = new URI("fedora:" + dir);
+		IMetadataRepository repo = getMetadataRepoManager().loadRepository(uri,
+				new NullProgressMonitor());
+		assertTrue(repo.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor()).isEmpty());
+		getMetadataRepoManager().removeRepository(uri);
+		assertTrue(isCachedNonBundleLocation(dir));
+
+		Files.delete(jar);
+		repo = getMetadataRepoManager().loadRepository(uri, new NullProgressMonitor());
+		assertTrue(repo.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor()).isEmpty());
+		getMetadataRepoManager().removeRepository(uri);
+		assertFalse(isCachedNonBundleLocation(dir));
+	}
+
+	// Jar which is not a bundle is examined again once it is replaced
+	@Test
+	public void replacedNonBundleTest() throws Exception {
+		Path dir = getTempDir();
+		Path jar = dir.resolve("foo.jar");
+		writeNonBundle(jar);
+		URI uri = new URI("fedora:" + dir);
+		IMetadataRepository repo = getMetadataRepoManager().loadRepository(uri,
+				new NullProgressMonitor());
+		assertTrue(repo.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor()).isEmpty());
+		getMetadataRepoManager().removeRepository(uri);
+
+		Files.delete(jar);
+		new Plugin("foo", "1.0.0").writeBundle(jar);
+		repo = getMetadataRepoManager().loadRepository(uri, new NullProgressMonitor());
+		getUnit(repo, "foo");
+	}
+
+	// Fresh prebuilt index is read instead of scanning the location
+	@Test
+	public void prebuiltIndexTest() throws Exception {
+		Path dir = getTempDir().resolve("repo");
+		Files.createDirectories(dir);
+		Path jar = dir.resolve("foo.jar");
+		Plugin plugin = new Plugin("foo", "1.0.0");
+		plugin.importPackage("org.osgi.framework");
+		plugin.writeBundle(jar);
+		System.setProperty(FedoraBundleIndex.INDEX_DIR_PROPERTY, getTempDir()
+				.resolve("index").toString());
+		try {
+			assertNotNull(BundleIndexGenerator.generate(dir));
+
+			// Overwrite the bundle in place, keeping its size and modification
+			// time, so that only the prebuilt index knows it is a bundle
+			FileTime mtime = Files.getLastModifiedTime(jar);
+			Files.write(jar, new byte[(int) Files.size(jar)]);
+			Files.setLastModifiedTime(jar, mtime);
+			URI uri = new URI("fedora:" + dir);
+			IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+					uri, new NullProgressMonitor());
+			assertEquals(1, getUnit(repo, "foo").getRequirements().size());
+			getMetadataRepoManager().removeRepository(uri);
+
+			// Adding a bundle makes the index stale
+			new Plugin("bar", "1.0.0").writeBundle(dir.resolve("bar.jar"));
+			repo = getMetadataRepoManager().loadRepository(uri,
+					new NullProgressMonitor());
+			getUnit(repo, "bar");
+			assertTrue(repo.query(QueryUtil.createIUQuery("foo"), new NullProgressMonitor()).isEmpty());
+		} finally {
+			System.clearProperty(FedoraBundleIndex.INDEX_DIR_PROPERTY);
+		}
+	}
+
+	@Test
+	public void corruptedPrebuiltIndexTest() throws Exception {
+		Path dir = getTempDir().resolve("repo");
+		Files.createDirectories(dir);
+		new Plugin("foo", "1.0.0").writeBundle(dir.resolve("foo.jar"));
+		Path indexDir = getTempDir().resolve("index");
+		System.setProperty(FedoraBundleIndex.INDEX_DIR_PROPERTY,
+				indexDir.toString());
+		try {
+			Path index = BundleIndexGenerator.generate(dir);
+			assertNotNull(index);
+
+			// Huge length of the first string, following magic and format
+			try (FileChannel channel = FileChannel.open(index,
+					StandardOpenOption.WRITE)) {
+				channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), 8);
+			}
+			URI uri = new URI("fedora:" + dir);
+			IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+					uri, new NullProgressMonitor());
+			getUnit(repo, "foo");
+			getMetadataRepoManager().removeRepository(uri);
+		} finally {
+			System.clearProperty(FedoraBundleIndex.INDEX_DIR_PROPERTY);
+		}
+	}
+
+	// Equal units from different files must not replace each other
+	@Test
+	public void compressTest() throws Exception {
+		IMetadataRepository repo1 = createRepository(getTempDir().resolve("1"),
+				"foo", "bar");
+		IMetadataRepository repo2 = createRepository(getTempDir().resolve("2"),
+				"foo");
+		IPool<IInstallableUnit> pool = new StrongPool<>();
+		IInstallableUnit foo1 = getUnit(repo1, "foo");
+		IInstallableUnit foo2 = getUnit(repo2, "foo");
+		repo1.compress(pool);
+		repo2.compress(pool);
+		repo1.compress(pool);
+		assertSame(foo1, getUnit(repo1, "foo"));
+		assertSame(foo2, getUnit(repo2, "foo"));
+		assertEquals(getTempDir().resolve("2/foo.jar"),
+				P2Utils.getPath(getUnit(repo2, "foo")));
+	}
 }
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.fedoraproject.p2.P2Utils;
+import org.junit.Test;
+
+public class P2UtilsTest extends RepositoryTest {
+
+	@Test
+	public void renameDirectoryTest() throws Exception {
+		Path source = getTempDir().resolve("source");
+		Path target = getTempDir().resolve("target");
+		Files.createDirectories(source);
+		Files.write(source.resolve("file"), Arrays.asList("source"));
+		assertTrue(P2Utils.renameDirectory(source, target));
+		assertFalse(Files.exists(source));
+		assertEquals(Arrays.asList("source"),
+				Files.readAllLines(target.resolve("file")));
+	}
+
+	// Entry created concurrently by another process is kept
+	@Test
+	public void renameOntoExistingDirectoryTest() throws Exception {
+		Path source = getTempDir().resolve("source");
+		Path target = getTempDir().resolve("target");
+		Files.createDirectories(source);
+		Files.write(source.resolve("file"), Arrays.asList("source"));
+		Files.createDirectories(target);
+		Files.write(target.resolve("file"), Arrays.asList("target"));
+		assertFalse(P2Utils.renameDirectory(source, target));
+		assertTrue(Files.exists(source.resolve("file")));
+		assertEquals(Arrays.asList("target"),
+				Files.readAllLines(target.resolve("file")));
+	}
+
+	@Test
+	public void sha256Test() throws Exception {
+		assertEquals(
+				"ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+				P2Utils.sha256("abc"));
+		assertEquals("00017f80ff", P2Utils.toHex(new byte[] { 0, 1, 127,
+				-128, -1 }));
+	}
+}
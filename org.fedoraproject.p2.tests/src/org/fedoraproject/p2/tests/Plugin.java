@@ -108,4 +108,20 @@ class Plugin {
 		}
 		this.path = path;
 	}
+
+	/**
+	 * Write plugin as directory-shaped bundle.
+	 */
+	public void writeBundleDir(Path path) throws IOException {
+		addManifestSet(attr, "Import-Package", imports);
+		addManifestSet(attr, "Export-Package", exports);
+		addManifestSet(attr, "Require-Bundle", requires);
+		attr.put(new Attributes.Name("Eclipse-BundleShape"), "dir");
+		Files.createDirectories(path.resolve("META-INF"));
+		try (OutputStream os = Files.newOutputStream(path
+				.resolve("META-INF/MANIFEST.MF"))) {
+			mf.write(os);
+		}
+		this.path = path;
+	}
 }
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactKeyQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.fedoraproject.p2.FedoraRepositoryExporter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RepositoryExportTest extends RepositoryTest {
+
+	private Path source;
+
+	private Path destination;
+
+	private FedoraRepositoryExporter exporter;
+
+	@Before
+	public void setUp() throws Exception {
+		source = getTempDir().resolve("source");
+		destination = getTempDir().resolve("destination");
+		Files.createDirectories(source);
+		exporter = new FedoraRepositoryExporter();
+	}
+
+	private Map<String, IInstallableUnit> getExportedUnits() throws Exception {
+		URI uri = destination.toUri();
+		try {
+			IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+					uri, new NullProgressMonitor());
+			Map<String, IInstallableUnit> units = new TreeMap<>();
+			for (IInstallableUnit unit : repo.query(
+					QueryUtil.createIUAnyQuery(), new NullProgressMonitor()))
+				units.put(unit.getId(), unit);
+			return units;
+		} finally {
+			getMetadataRepoManager().removeRepository(uri);
+		}
+	}
+
+	private byte[] getExportedArtifact(String id) throws Exception {
+		URI uri = destination.toUri();
+		try {
+			IArtifactRepository repo = getArtifactRepoManager().loadRepository(
+					uri, new NullProgressMonitor());
+			for (IArtifactKey key : repo.query(ArtifactKeyQuery.ALL_KEYS,
+					new NullProgressMonitor())) {
+				if (key.getId().equals(id)) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					assertTrue(repo.getArtifact(
+							repo.getArtifactDescriptors(key)[0], out,
+							new NullProgressMonitor()).isOK());
+					return out.toByteArray();
+				}
+			}
+			return null;
+		} finally {
+			getArtifactRepoManager().removeRepository(uri);
+		}
+	}
+
+	@Test
+	public void exportTest() throws Exception {
+		new Plugin("foo", "1.0.0").writeBundle(source.resolve("foo.jar"));
+		new Plugin("bar", "1.0.0").writeBundleDir(source.resolve("bar"));
+		assertTrue(exporter.export(source, destination));
+
+		assertTrue(Files.isRegularFile(destination.resolve("content.xml.xz")));
+		assertTrue(Files.isRegularFile(destination.resolve("artifacts.xml.xz")));
+		assertEquals(Arrays.asList("bar", "foo"), new ArrayList<>(
+				getExportedUnits().keySet()));
+
+		// Jar is hardlinked, directory is referenced
+		assertTrue(Files.isSameFile(source.resolve("foo.jar"),
+				destination.resolve("plugins/foo_1.0.0.jar")));
+		assertFalse(Files.exists(destination.resolve("plugins/bar_1.0.0")));
+		assertTrue(Arrays.equals(Files.readAllBytes(source
+				.resolve("foo.jar")), getExportedArtifact("foo")));
+	}
+
+	@Test
+	public void incrementalExportTest() throws Exception {
+		new Plugin("foo", "1.0.0").writeBundle(source.resolve("foo.jar"));
+		new Plugin("bar", "1.0.0").writeBundle(source.resolve("bar.jar"));
+		assertTrue(exporter.export(source, destination));
+
+		// Unchanged location doesn't touch exported repository
+		Path content = destination.resolve("content.xml.xz");
+		FileTime mtime = FileTime.fromMillis(0);
+		Files.setLastModifiedTime(content, mtime);
+		assertFalse(exporter.export(source, destination));
+		assertEquals(mtime, Files.getLastModifiedTime(content));
+
+		// Removed bundle is removed, added and replaced bundles are exported
+		Files.delete(source.resolve("bar.jar"));
+		new Plugin("baz", "1.0.0").writeBundle(source.resolve("baz.jar"));
+		Files.delete(source.resolve("foo.jar"));
+		new Plugin("foo", "1.0.0").importPackage("org.osgi.framework")
+				.writeBundle(source.resolve("foo.jar"));
+		assertTrue(exporter.export(source, destination));
+		Map<String, IInstallableUnit> units = getExportedUnits();
+		assertEquals(Arrays.asList("baz", "foo"), new ArrayList<>(units.keySet()));
+		assertEquals(1, units.get("foo").getRequirements().size());
+		assertFalse(Files.exists(destination.resolve("plugins/bar_1.0.0.jar")));
+		assertTrue(Files.isSameFile(source.resolve("foo.jar"),
+				destination.resolve("plugins/foo_1.0.0.jar")));
+	}
+}
@@ -0,0 +1,306 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates system layouts of arbitrary size for scale testing, built from
+ * {@link Plugin} and {@link Feature}. Bundles and features are spread among
+ * platform, internal (droplet) and external locations of one or more SCLs,
+ * each described by its own {@code eclipse.conf}.
+ * <p>
+ * Layouts are reproducible: the same seed and settings always produce the
+ * same bundles, features and dependency graph. Bundle {@code i} may only
+ * import packages of and require bundles with lower numbers, except for
+ * explicitly requested cycles.
+ */
+class RepositoryGenerator {
+	private static final String VERSION = "1.0.0";
+
+	// Number of internal bundles placed in single droplet
+	private static final int DROPLET_SIZE = 100;
+
+	private final Random random;
+
+	private int bundleCount = 100;
+
+	private int featureCount = 10;
+
+	private int importFanOut = 2;
+
+	private int requireFanOut = 2;
+
+	private double fragmentRatio = 0;
+
+	private double dirShapedRatio = 0;
+
+	private int duplicateCount = 0;
+
+	private int cycleCount = 0;
+
+	private int sclCount = 1;
+
+	private int reactorCount = 0;
+
+	private List<Set<Integer>> imports;
+
+	private List<Set<Integer>> requires;
+
+	private int[] hosts;
+
+	private final List<Path> configFiles = new ArrayList<>();
+
+	private final List<Plugin> platformPlugins = new ArrayList<>();
+
+	private final List<Plugin> internalPlugins = new ArrayList<>();
+
+	private final List<Plugin> externalPlugins = new ArrayList<>();
+
+	private final List<Plugin> duplicatePlugins = new ArrayList<>();
+
+	private final List<Plugin> reactorPlugins = new ArrayList<>();
+
+	private final List<Feature> features = new ArrayList<>();
+
+	public RepositoryGenerator(long seed) {
+		random = new Random(seed);
+	}
+
+	public RepositoryGenerator bundles(int count) {
+		bundleCount = count;
+		return this;
+	}
+
+	public RepositoryGenerator features(int count) {
+		featureCount = count;
+		return this;
+	}
+
+	/**
+	 * Set maximal number of packages imported and bundles required by each
+	 * bundle.
+	 */
+	public RepositoryGenerator fanOut(int imports, int requires) {
+		importFanOut = imports;
+		requireFanOut = requires;
+		return this;
+	}
+
+	public RepositoryGenerator fragments(double ratio) {
+		fragmentRatio = ratio;
+		return this;
+	}
+
+	public RepositoryGenerator dirShaped(double ratio) {
+		dirShapedRatio = ratio;
+		return this;
+	}
+
+	/**
+	 * Install given number of bundles a second time, as external bundles
+	 * under a different file name.
+	 */
+	public RepositoryGenerator duplicates(int count) {
+		duplicateCount = count;
+		return this;
+	}
+
+	/**
+	 * Add given number of pairs of bundles requiring each other.
+	 */
+	public RepositoryGenerator cycles(int count) {
+		cycleCount = count;
+		return this;
+	}
+
+	public RepositoryGenerator scls(int count) {
+		sclCount = count;
+		return this;
+	}
+
+	/**
+	 * Also generate given number of reactor plugins requiring system bundles.
+	 */
+	public RepositoryGenerator reactor(int count) {
+		reactorCount = count;
+		return this;
+	}
+
+	public static String bundleId(int i) {
+		return "org.example.b" + i;
+	}
+
+	public static String reactorId(int i) {
+		return "org.example.reactor" + i;
+	}
+
+	private Set<Integer> pick(int bound, int count) {
+		Set<Integer> result = new LinkedHashSet<>();
+		for (int i = 0; i < count && bound > 0; i++)
+			result.add(random.nextInt(bound));
+		return result;
+	}
+
+	private void createGraph() {
+		imports = new ArrayList<>();
+		requires = new ArrayList<>();
+		hosts = new int[bundleCount];
+		for (int i = 0; i < bundleCount; i++) {
+			imports.add(pick(i, importFanOut));
+			requires.add(pick(i, requireFanOut));
+			hosts[i] = i > 0 && random.nextDouble() < fragmentRatio ? random
+					.nextInt(i) : -1;
+		}
+		for (int i = 0; i < cycleCount && bundleCount > 1; i++) {
+			int a = random.nextInt(bundleCount - 1);
+			int b = a + 1 + random.nextInt(bundleCount - a - 1);
+			requires.get(a).add(b);
+			requires.get(b).add(a);
+		}
+	}
+
+	private Plugin createPlugin(int i) {
+		Plugin plugin = new Plugin(bundleId(i), VERSION);
+		plugin.exportPackage(bundleId(i));
+		for (int j : imports.get(i))
+			plugin.importPackage(bundleId(j));
+		for (int j : requires.get(i))
+			plugin.requireBundle(bundleId(j));
+		if (hosts[i] >= 0)
+			plugin.addMfEntry("Fragment-Host", bundleId(hosts[i]));
+		return plugin;
+	}
+
+	private Plugin writePlugin(Plugin plugin, Path dir) throws Exception {
+		Files.createDirectories(dir);
+		String baseName = plugin.getId() + "_" + plugin.getVersion();
+		if (random.nextDouble() < dirShapedRatio)
+			plugin.writeBundleDir(dir.resolve(baseName));
+		else
+			plugin.writeBundle(dir.resolve(baseName + ".jar"));
+		return plugin;
+	}
+
+	private static Path getPrefix(Path dir, int scl) {
+		return dir.resolve("scl" + scl);
+	}
+
+	private static Path getDropletDir(Path dir, int scl, int droplet) {
+		return getPrefix(dir, scl).resolve(
+				"usr/share/eclipse/droplets/droplet" + droplet);
+	}
+
+	/**
+	 * Write the layout, configuration files and reactor plugins under given
+	 * directory.
+	 */
+	public RepositoryGenerator generate(Path dir) throws Exception {
+		createGraph();
+
+		for (int scl = 0; scl < sclCount; scl++) {
+			Path conf = dir.resolve("scl" + scl + ".conf");
+			RepositoryTest.writeSclConfig(conf, scl == 0 ? "" : "scl" + scl,
+					getPrefix(dir, scl));
+			configFiles.add(conf);
+		}
+
+		for (int i = 0; i < bundleCount; i++) {
+			int scl = i % sclCount;
+			double tier = random.nextDouble();
+			if (tier < 0.3) {
+				platformPlugins.add(writePlugin(createPlugin(i),
+						getPrefix(dir, scl).resolve("usr/lib/eclipse/plugins")));
+			} else if (tier < 0.5) {
+				int droplet = internalPlugins.size() / DROPLET_SIZE;
+				internalPlugins.add(writePlugin(createPlugin(i),
+						getDropletDir(dir, scl, droplet).resolve("plugins")));
+			} else {
+				externalPlugins.add(writePlugin(createPlugin(i),
+						getPrefix(dir, scl).resolve("usr/share/java")));
+			}
+		}
+
+		for (int i = 0; i < duplicateCount && bundleCount > 0; i++) {
+			int j = random.nextInt(bundleCount);
+			Plugin plugin = createPlugin(j);
+			Path javadir = getPrefix(dir, j % sclCount).resolve(
+					"usr/share/java");
+			Files.createDirectories(javadir);
+			plugin.writeBundle(javadir.resolve(plugin.getId() + "-duplicate"
+					+ i + ".jar"));
+			duplicatePlugins.add(plugin);
+		}
+
+		for (int i = 0; i < featureCount; i++) {
+			int scl = i % sclCount;
+			Feature feature = new Feature("org.example.f" + i, VERSION);
+			for (int j : pick(bundleCount, requireFanOut + importFanOut))
+				feature.addPlugin(bundleId(j), VERSION);
+			Path featuresDir = random.nextBoolean() ? getPrefix(dir, scl)
+					.resolve("usr/lib/eclipse/features") : getDropletDir(dir,
+					scl, 0).resolve("features");
+			feature.write(featuresDir.resolve(feature.getId() + "_" + VERSION));
+			features.add(feature);
+		}
+
+		Path reactorDir = dir.resolve("reactor");
+		Files.createDirectories(reactorDir);
+		for (int i = 0; i < reactorCount; i++) {
+			Plugin plugin = new Plugin(reactorId(i), VERSION);
+			for (int j : pick(bundleCount, importFanOut))
+				plugin.importPackage(bundleId(j));
+			for (int j : pick(bundleCount, requireFanOut))
+				plugin.requireBundle(bundleId(j));
+			for (int j : pick(i, requireFanOut))
+				plugin.requireBundle(reactorId(j));
+			plugin.writeBundle(reactorDir.resolve(plugin.getId() + "_"
+					+ VERSION + ".jar"));
+			reactorPlugins.add(plugin);
+		}
+
+		return this;
+	}
+
+	public List<Path> getConfigFiles() {
+		return configFiles;
+	}
+
+	public List<Plugin> getPlatformPlugins() {
+		return platformPlugins;
+	}
+
+	public List<Plugin> getInternalPlugins() {
+		return internalPlugins;
+	}
+
+	public List<Plugin> getExternalPlugins() {
+		return externalPlugins;
+	}
+
+	public List<Plugin> getDuplicatePlugins() {
+		return duplicatePlugins;
+	}
+
+	public List<Plugin> getReactorPlugins() {
+		return reactorPlugins;
+	}
+
+	public List<Feature> getFeatures() {
+		return features;
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.fedoraproject.p2.CompoundBundleRepository;
+import org.fedoraproject.p2.IFedoraBundleRepository;
+import org.fedoraproject.p2.SCL;
+import org.junit.Test;
+
+public class RepositoryGeneratorTest extends RepositoryTest {
+
+	private RepositoryGenerator createGenerator() {
+		return new RepositoryGenerator(42).bundles(300).features(20)
+				.fanOut(3, 2).fragments(0.1).dirShaped(0.1).duplicates(5)
+				.cycles(3).scls(2).reactor(10);
+	}
+
+	// Relative path of every generated file mapped to its manifest, if any
+	private Map<String, String> describe(Path dir) throws Exception {
+		Map<String, String> result = new TreeMap<>();
+		try (Stream<Path> stream = Files.walk(dir)) {
+			for (Path path : stream.filter(Files::isRegularFile).collect(
+					Collectors.toList())) {
+				String content = "";
+				if (path.toString().endsWith(".jar")) {
+					try (JarFile jar = new JarFile(path.toFile())) {
+						Map<String, String> manifest = new TreeMap<>();
+						jar.getManifest().getMainAttributes().forEach(
+								(k, v) -> manifest.put(k.toString(),
+										v.toString()));
+						content = manifest.toString();
+					}
+				} else if (!path.toString().endsWith(".conf")) {
+					content = new String(Files.readAllBytes(path), "UTF-8");
+				}
+				result.put(dir.relativize(path).toString(), content);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void reproducibleTest() throws Exception {
+		Path dir1 = getTempDir().resolve("1");
+		Path dir2 = getTempDir().resolve("2");
+		createGenerator().generate(dir1);
+		createGenerator().generate(dir2);
+		assertEquals(describe(dir1), describe(dir2));
+	}
+
+	@Test
+	public void layoutTest() throws Exception {
+		RepositoryGenerator generator = createGenerator().generate(
+				getTempDir());
+		assertEquals(2, generator.getConfigFiles().size());
+		assertEquals(300, generator.getPlatformPlugins().size()
+				+ generator.getInternalPlugins().size()
+				+ generator.getExternalPlugins().size());
+		assertEquals(10, generator.getReactorPlugins().size());
+
+		List<SCL> scls = generator.getConfigFiles().stream().map(SCL::new)
+				.collect(Collectors.toList());
+		IFedoraBundleRepository repo = new CompoundBundleRepository(scls);
+		Set<IInstallableUnit> units = new LinkedHashSet<>();
+		units.addAll(repo.getPlatformUnits());
+		units.addAll(repo.getInternalUnits());
+		units.addAll(repo.getExternalUnits());
+
+		// Duplicates are indexed only once
+		Set<String> bundleIds = units.stream().map(IInstallableUnit::getId)
+				.filter(id -> id.startsWith("org.example.b"))
+				.collect(Collectors.toSet());
+		assertEquals(300, bundleIds.size());
+		for (int i = 0; i < 300; i++)
+			assertTrue(bundleIds.contains(RepositoryGenerator.bundleId(i)));
+
+		long featureGroups = units.stream().map(IInstallableUnit::getId)
+				.filter(id -> id.endsWith(".feature.group")).count();
+		assertEquals(20, featureGroups);
+	}
+}
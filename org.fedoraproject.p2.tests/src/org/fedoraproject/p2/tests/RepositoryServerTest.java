@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarInputStream;
+import java.util.stream.Stream;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactKeyQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.fedoraproject.p2.FedoraRepositoryServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RepositoryServerTest extends RepositoryTest {
+
+	private Path location;
+
+	private Path cache;
+
+	private FedoraRepositoryServer server;
+
+	private URI uri;
+
+	@Before
+	public void setUp() throws Exception {
+		location = getTempDir().resolve("location");
+		cache = getTempDir().resolve("cache");
+		Files.createDirectories(location);
+		new Plugin("foo", "1.0.0").writeBundle(location.resolve("foo.jar"));
+		new Plugin("bar", "1.0.0").writeBundleDir(location.resolve("bar"));
+		server = new FedoraRepositoryServer(new InetSocketAddress(
+				InetAddress.getLoopbackAddress(), 0), cache);
+		uri = server.addRepository("test", location);
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.close();
+	}
+
+	private HttpURLConnection open(String path, String tag) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) uri.resolve(path)
+				.toURL().openConnection();
+		if (tag != null)
+			connection.setRequestProperty("If-None-Match", tag);
+		return connection;
+	}
+
+	private byte[] read(HttpURLConnection connection) throws Exception {
+		assertEquals(200, connection.getResponseCode());
+		try (InputStream in = connection.getInputStream()) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			in.transferTo(out);
+			return out.toByteArray();
+		}
+	}
+
+	@Test
+	public void conditionalRequestTest() throws Exception {
+		HttpURLConnection connection = open("content.xml", null);
+		assertTrue(read(connection).length > 0);
+		String tag = connection.getHeaderField("ETag");
+		assertNotNull(tag);
+		assertEquals(304, open("content.xml", tag).getResponseCode());
+		assertEquals(200, open("content.xml", "\"other\"").getResponseCode());
+		assertEquals(404, open("missing.xml", null).getResponseCode());
+
+		connection = open("plugins/foo_1.0.0.jar", null);
+		assertTrue(Arrays.equals(Files.readAllBytes(location.resolve("foo.jar")),
+				read(connection)));
+		tag = connection.getHeaderField("ETag");
+		assertEquals(304, open("plugins/foo_1.0.0.jar", tag).getResponseCode());
+	}
+
+	@Test
+	public void directoryBundleTest() throws Exception {
+		byte[] jar = read(open("plugins/bar_1.0.0.jar", null));
+		try (JarInputStream in = new JarInputStream(
+				new ByteArrayInputStream(jar))) {
+			assertEquals("bar", in.getManifest().getMainAttributes()
+					.getValue("Bundle-SymbolicName"));
+		}
+
+		// Packed jar is cached and served again while the bundle is unchanged
+		List<Path> cached = new ArrayList<>();
+		try (Stream<Path> files = Files.list(cache)) {
+			files.forEach(cached::add);
+		}
+		assertEquals(1, cached.size());
+		FileTime mtime = Files.getLastModifiedTime(cached.get(0));
+		byte[] marker = "cached".getBytes(StandardCharsets.UTF_8);
+		Files.write(cached.get(0), marker);
+		Files.setLastModifiedTime(cached.get(0), mtime);
+		assertTrue(Arrays.equals(marker,
+				read(open("plugins/bar_1.0.0.jar", null))));
+	}
+
+	@Test
+	public void silentClientTest() throws Exception {
+		server.setReadTimeout(500);
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+				server.getPort())) {
+			// Server closes connection of a client which sends nothing
+			socket.setSoTimeout(10000);
+			assertEquals(-1, socket.getInputStream().read());
+		}
+		assertTrue(read(open("content.xml", null)).length > 0);
+	}
+
+	@Test
+	public void p2RepositoryTest() throws Exception {
+		IMetadataRepository metadata = getMetadataRepoManager().loadRepository(
+				uri, new NullProgressMonitor());
+		IArtifactRepository artifacts = getArtifactRepoManager()
+				.loadRepository(uri, new NullProgressMonitor());
+		try {
+			List<String> ids = new ArrayList<>();
+			for (IInstallableUnit unit : metadata.query(
+					QueryUtil.createIUAnyQuery(), new NullProgressMonitor()))
+				ids.add(unit.getId());
+			ids.sort(null);
+			assertEquals(Arrays.asList("bar", "foo"), ids);
+			assertEquals(2, artifacts.query(ArtifactKeyQuery.ALL_KEYS,
+					new NullProgressMonitor()).toUnmodifiableSet().size());
+		} finally {
+			getMetadataRepoManager().removeRepository(uri);
+			getArtifactRepoManager().removeRepository(uri);
+		}
+	}
+}
@@ -95,7 +95,7 @@ public class RepositoryTest {
 		return tempDir;
 	}
 
-	protected void writeSclConfig(Path confPath, String name, Path prefix)
+	protected static void writeSclConfig(Path confPath, String name, Path prefix)
 			throws Exception {
 
 		Path eclipseRoot = prefix.resolve("usr/lib/eclipse");
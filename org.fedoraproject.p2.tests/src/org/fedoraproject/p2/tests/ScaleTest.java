@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.fedoraproject.p2.CompoundBundleRepository;
+import org.fedoraproject.p2.SCL;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationRequest;
+import org.fedoraproject.p2.installer.EclipseInstaller;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Checks that cost of indexing, querying and installation grows linearly with
+ * size of the system layout. Every operation is run on a layout of given size
+ * and on a layout twice as big. Cost is measured by memory allocated by the
+ * test thread and by operation counts reported by the installer, not by
+ * time, so that results are deterministic.
+ * <p>
+ * Size of the smaller layout is taken from {@code fedora.p2.scale.bundles}
+ * system property. The default keeps the suite fast enough for every build;
+ * set it to 10000 or more to check distribution-sized layouts.
+ * <p>
+ * Installation runs on layouts with sparse dependencies among system
+ * bundles. Dense random dependency graphs are not representative of real
+ * layouts and make metapackage splitting, rather than the layout size,
+ * dominate the cost.
+ */
+public class ScaleTest extends RepositoryTest {
+	private static final int BUNDLES = Integer.getInteger(
+			"fedora.p2.scale.bundles", 2000);
+
+	private static final int REACTOR = 50;
+
+	// Linear cost doubles when size is doubled, quadratic cost quadruples
+	private static final double MAX_GROWTH = 3;
+
+	private static ThreadMXBean threadBean;
+
+	private static Method getAllocatedBytes;
+
+	@BeforeClass
+	public static void findAllocationCounter() throws Exception {
+		threadBean = ManagementFactory.getThreadMXBean();
+		// com.sun.management is not imported by the test bundle, so the
+		// extended interface is looked up through the platform bean itself
+		for (Class<?> iface : threadBean.getClass().getInterfaces()) {
+			if (iface.getName().equals("com.sun.management.ThreadMXBean"))
+				getAllocatedBytes = iface.getMethod(
+						"getThreadAllocatedBytes", long.class);
+		}
+	}
+
+	private static long getAllocatedBytes() throws Exception {
+		Assume.assumeNotNull(getAllocatedBytes);
+		return (Long) getAllocatedBytes.invoke(threadBean, Thread
+				.currentThread().getId());
+	}
+
+	private static void assertLinear(String what, long small, long large) {
+		assertTrue(what + " is not positive", small > 0);
+		assertTrue(what + " grows faster than linearly: " + small + " => "
+				+ large, large < MAX_GROWTH * small);
+	}
+
+	private RepositoryGenerator generate(String name, int bundles)
+			throws Exception {
+		return generate(name, bundles, 3);
+	}
+
+	private RepositoryGenerator generate(String name, int bundles, int fanOut)
+			throws Exception {
+		return new RepositoryGenerator(42).bundles(bundles)
+				.features(bundles / 50).fanOut(fanOut, fanOut).fragments(0.05)
+				.dirShaped(0.05).duplicates(bundles / 100)
+				.cycles(bundles / 1000).scls(2).reactor(REACTOR)
+				.generate(getTempDir().resolve(name));
+	}
+
+	private static List<SCL> getScls(RepositoryGenerator generator) {
+		return generator.getConfigFiles().stream().map(SCL::new)
+				.collect(Collectors.toList());
+	}
+
+	private long indexLayout(RepositoryGenerator generator) throws Exception {
+		List<SCL> scls = getScls(generator);
+		long before = getAllocatedBytes();
+		CompoundBundleRepository repo = new CompoundBundleRepository(scls);
+		int units = repo.getPlatformUnits().size()
+				+ repo.getInternalUnits().size()
+				+ repo.getExternalUnits().size();
+		long allocated = getAllocatedBytes() - before;
+		assertTrue(units >= generator.getPlatformPlugins().size()
+				+ generator.getInternalPlugins().size()
+				+ generator.getExternalPlugins().size());
+		return allocated;
+	}
+
+	@Test
+	public void compoundRepositoryTest() throws Exception {
+		indexLayout(generate("warmup", 100));
+		long small = indexLayout(generate("small", BUNDLES));
+		long large = indexLayout(generate("large", 2 * BUNDLES));
+		assertLinear("Allocation of bundle repository", small, large);
+	}
+
+	private long queryLayout(RepositoryGenerator generator) throws Exception {
+		SCL scl = getScls(generator).get(0);
+		URI uri = new URI("fedora:"
+				+ scl.getBundleLocations().iterator().next());
+		long before = getAllocatedBytes();
+		IMetadataRepository repo = getMetadataRepoManager().loadRepository(
+				uri, new NullProgressMonitor());
+		int found = 0;
+		for (Plugin plugin : generator.getExternalPlugins().subList(0, 100))
+			found += repo.query(QueryUtil.createIUQuery(plugin.getId()),
+					new NullProgressMonitor()).toUnmodifiableSet().size();
+		long allocated = getAllocatedBytes() - before;
+		getMetadataRepoManager().removeRepository(uri);
+		return found > 0 ? allocated : 0;
+	}
+
+	@Test
+	public void metadataRepositoryTest() throws Exception {
+		queryLayout(generate("warmup", 1000));
+		long small = queryLayout(generate("small", BUNDLES));
+		long large = queryLayout(generate("large", 2 * BUNDLES));
+		assertLinear("Allocation of metadata repository queries", small,
+				large);
+	}
+
+	private long getCounter(Path report, String counter) throws Exception {
+		String json = new String(Files.readAllBytes(report), "UTF-8");
+		Matcher matcher = Pattern.compile(
+				"\"" + Pattern.quote(counter) + "\": (\\d+)").matcher(json);
+		assertTrue("Missing counter " + counter, matcher.find());
+		return Long.parseLong(matcher.group(1));
+	}
+
+	private long[] installLayout(EclipseInstaller installer,
+			RepositoryGenerator generator, String name) throws Exception {
+		EclipseInstallationRequest request = new EclipseInstallationRequest();
+		Path buildRoot = getTempDir().resolve(name + "-buildroot");
+		Files.createDirectories(buildRoot);
+		request.setBuildRoot(buildRoot);
+		request.setMainPackageId("main");
+		for (Path conf : generator.getConfigFiles())
+			request.addConfigFile(conf);
+		for (Plugin plugin : generator.getReactorPlugins())
+			request.addArtifact(new EclipseArtifact(plugin.getPath(), false,
+					false));
+		Path report = getTempDir().resolve(name + "-metrics.json");
+		request.setMetricsReport(report);
+
+		long before = getAllocatedBytes();
+		installer.performInstallation(request);
+		long allocated = getAllocatedBytes() - before;
+
+		assertEquals(REACTOR, getCounter(report, "reactor.units"));
+		return new long[] { allocated,
+				getCounter(report, "requirements.candidates") };
+	}
+
+	@Test
+	public void installationTest() throws Exception {
+		ServiceReference<EclipseInstaller> reference = getBundleContext()
+				.getServiceReference(EclipseInstaller.class);
+		assertNotNull(reference);
+		EclipseInstaller installer = getBundleContext().getService(reference);
+		try {
+			installLayout(installer, generate("warmup", 1000, 1), "warmup");
+			long[] small = installLayout(installer,
+					generate("small", BUNDLES, 1), "small");
+			long[] large = installLayout(installer,
+					generate("large", 2 * BUNDLES, 1), "large");
+			assertLinear("Allocation of installation", small[0], large[0]);
+			assertLinear("Candidates examined by resolution", small[1],
+					large[1]);
+		} finally {
+			getBundleContext().ungetService(reference);
+		}
+	}
+}
@@ -12,8 +12,9 @@ package org.fedoraproject.p2;
 
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
@@ -28,38 +29,90 @@ import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 public abstract class AbstractBundleRepository implements
 		IFedoraBundleRepository {
 
-	protected Set<IInstallableUnit> platformUnits;
-	protected Set<IInstallableUnit> internalUnits;
-	protected Set<IInstallableUnit> externalUnits;
+	// Partitions of units, as sets of indices in the unit table. Units which
+	// are both internal and external must be added to the table as external
+	// units first, so that they are represented by their external copies.
+	final UnitTable unitTable = new UnitTable();
+	BitSet platformUnits = new BitSet();
+	BitSet internalUnits = new BitSet();
+	BitSet externalUnits = new BitSet();
 	private boolean filtered = false;
+	private Set<IInstallableUnit> platformView;
+	private Set<IInstallableUnit> internalView;
+	private Set<IInstallableUnit> externalView;
+
+	// Real paths resolved so far, null values for paths that can't be resolved
+	private final Map<Path, Path> realPaths;
+
+	protected AbstractBundleRepository() {
+		this(new HashMap<>());
+	}
+
+	/**
+	 * Create a repository sharing cache of resolved real paths with other
+	 * repositories.
+	 */
+	AbstractBundleRepository(Map<Path, Path> realPaths) {
+		this.realPaths = realPaths;
+	}
+
+	Map<Path, Path> getRealPathCache() {
+		return realPaths;
+	}
+
+	/**
+	 * @return real path of given file, or {@code null} if it can't be
+	 *         resolved
+	 */
+	Path toRealPath(Path path) {
+		if (realPaths.containsKey(path))
+			return realPaths.get(path);
+		Path realPath;
+		try {
+			realPath = path.toRealPath();
+		} catch (IOException e) {
+			realPath = null;
+		}
+		realPaths.put(path, realPath);
+		return realPath;
+	}
+
+	private PathTrie createDropinTrie() {
+		PathTrie dropins = new PathTrie();
+		for (Path dropin : getDropinsLocations()) {
+			Path realDropin = toRealPath(dropin);
+			dropins.add(realDropin != null ? realDropin : dropin
+					.toAbsolutePath().normalize());
+		}
+		return dropins;
+	}
 
 	private void filterUnits() {
 		if (!filtered) {
-			internalUnits = new LinkedHashSet<>(internalUnits);
-			externalUnits = new LinkedHashSet<>(externalUnits);
-
-			Set<IInstallableUnit> commonUnits = new LinkedHashSet<>(
-					externalUnits);
-			commonUnits.retainAll(internalUnits);
-
-			internalUnits.removeAll(commonUnits);
-			externalUnits.removeAll(commonUnits);
-
-			for (IInstallableUnit unit : commonUnits) {
-				try {
-					Path path = P2Utils.getPath(unit);
-					if (path == null)
-						continue;
-					path = path.toRealPath();
-					for (Path dropin : getDropinsLocations()) {
-						if (path.startsWith(dropin))
-							internalUnits.add(unit);
-						else
-							externalUnits.add(unit);
-					}
-				} catch (IOException e) {
-				}
+			BitSet commonUnits = (BitSet) externalUnits.clone();
+			commonUnits.and(internalUnits);
+
+			internalUnits.andNot(commonUnits);
+			externalUnits.andNot(commonUnits);
+
+			PathTrie dropins = createDropinTrie();
+			for (int i = commonUnits.nextSetBit(0); i >= 0; i = commonUnits
+					.nextSetBit(i + 1)) {
+				Path path = P2Utils.getPath(unitTable.get(i));
+				if (path == null)
+					continue;
+				path = toRealPath(path);
+				if (path == null)
+					continue;
+				if (dropins.containsPrefixOf(path))
+					internalUnits.set(i);
+				else
+					externalUnits.set(i);
 			}
+
+			platformView = unitTable.view(platformUnits);
+			internalView = unitTable.view(internalUnits);
+			externalView = unitTable.view(externalUnits);
 			filtered = true;
 		}
 	}
@@ -68,18 +121,19 @@ public abstract class AbstractBundleRepository implements
 
 	@Override
 	public final Set<IInstallableUnit> getPlatformUnits() {
-		return Collections.unmodifiableSet(platformUnits);
+		filterUnits();
+		return platformView;
 	}
 
 	@Override
 	public final Set<IInstallableUnit> getInternalUnits() {
 		filterUnits();
-		return Collections.unmodifiableSet(internalUnits);
+		return internalView;
 	}
 
 	@Override
 	public final Set<IInstallableUnit> getExternalUnits() {
 		filterUnits();
-		return Collections.unmodifiableSet(externalUnits);
+		return externalView;
 	}
 }
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Command line tool writing prebuilt indices of all bundle locations of
+ * software collections, so that {@link FedoraBundleIndex} can read them
+ * instead of scanning the locations. It is meant to be run whenever packages
+ * installing bundles are installed, updated or removed, for example from an
+ * RPM file trigger:
+ *
+ * <pre>
+ * java -cp ... org.fedoraproject.p2.BundleIndexGenerator [eclipse.conf...]
+ * </pre>
+ *
+ * Without arguments configuration files of all software collections enabled
+ * by {@code JAVACONFDIRS} environmental variable are used.
+ */
+public class BundleIndexGenerator {
+
+	public static void main(String[] args) {
+		List<Path> confFiles = new ArrayList<>();
+		for (String arg : args)
+			confFiles.add(Paths.get(arg));
+		if (confFiles.isEmpty())
+			confFiles = EclipseSystemLayout.getSclConfFiles();
+
+		try {
+			for (Path location : generate(confFiles))
+				System.out.println(location);
+		} catch (IOException e) {
+			System.err.println("Unable to write bundle index: " + e);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Write prebuilt indices of all bundle locations of given software
+	 * collections.
+	 *
+	 * @param confFiles
+	 *            configuration files of software collections
+	 * @return locations which were indexed
+	 */
+	public static Set<Path> generate(List<Path> confFiles) throws IOException {
+		Set<Path> locations = new LinkedHashSet<>();
+		for (Path conf : confFiles)
+			EclipseSystemLayout.initLocations(new SCL(conf), locations,
+					locations, locations, true);
+		for (Path location : locations)
+			generate(location);
+		return locations;
+	}
+
+	/**
+	 * Write prebuilt index of given bundle location.
+	 *
+	 * @return file the index was written to, or {@code null} if prebuilt
+	 *         indices are disabled
+	 */
+	public static Path generate(Path location) throws IOException {
+		Path file = PrebuiltBundleIndex.getFile(location.toFile());
+		if (file != null)
+			new FedoraBundleIndex(location.toFile(), true)
+					.writePrebuiltIndex(file);
+		return file;
+	}
+}
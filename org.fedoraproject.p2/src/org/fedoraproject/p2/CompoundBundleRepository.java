@@ -13,10 +13,14 @@ package org.fedoraproject.p2;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+
 /**
  * A compound bundle repository which consists of one or more layered bundle
  * repositories.
@@ -35,27 +39,29 @@ public class CompoundBundleRepository extends AbstractBundleRepository {
      *            ordered list of prefixes to use
      */
 	public CompoundBundleRepository(List<SCL> scls) {
+		// Units of locations shared by several SCLs are always shadowed by
+		// units of the first SCL, so such locations are loaded only once,
+		// within the first SCL
+		Map<Path, IMetadataRepository> loadedRepos = new HashMap<>();
 		indices = new ArrayList<>(scls.size());
 		for (SCL scl : scls) {
-			indices.add(new FedoraBundleRepository(scl));
+			indices.add(new FedoraBundleRepository(scl, getRealPathCache(),
+					loadedRepos));
 		}
 
-		platformUnits = new LinkedHashSet<>();
 		for (IFedoraBundleRepository index : indices) {
-			platformUnits.addAll(index.getPlatformUnits());
+			platformUnits.or(unitTable.addAll(index.getPlatformUnits()));
 		}
 
-		internalUnits = new LinkedHashSet<>();
 		for (IFedoraBundleRepository index : indices) {
-			internalUnits.addAll(index.getInternalUnits());
+			externalUnits.or(unitTable.addAll(index.getExternalUnits()));
 		}
-		internalUnits.removeAll(platformUnits);
+		externalUnits.andNot(platformUnits);
 
-		externalUnits = new LinkedHashSet<>();
 		for (IFedoraBundleRepository index : indices) {
-			externalUnits.addAll(index.getExternalUnits());
+			internalUnits.or(unitTable.addAll(index.getInternalUnits()));
 		}
-		externalUnits.removeAll(platformUnits);
+		internalUnits.andNot(platformUnits);
 	}
 
 	@Override
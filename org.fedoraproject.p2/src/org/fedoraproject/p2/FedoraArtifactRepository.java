@@ -12,6 +12,7 @@ package org.fedoraproject.p2;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
@@ -174,6 +175,14 @@ public class FedoraArtifactRepository implements IArtifactRepository {
 		return index.containsKey(key);
 	}
 
+	/**
+	 * @return file or directory of artifact with given key, or {@code null}
+	 *         if this repository doesn't contain it
+	 */
+	public File getArtifactFile(IArtifactKey key) {
+		return index.getFileForKey(key);
+	}
+
 	@Override
 	public IStatus getArtifact(IArtifactDescriptor descriptor,
 			OutputStream destination, IProgressMonitor monitor) {
@@ -182,6 +191,21 @@ public class FedoraArtifactRepository implements IArtifactRepository {
 		if (file == null) {
 			return Status.CANCEL_STATUS;
 		}
+		if (!P2Utils.isJfrAvailable()) {
+			transfer(key, file, destination);
+			return Status.OK_STATUS;
+		}
+		Object event = RepositoryEvents.beginArtifactTransfer(key, file);
+		CountingOutputStream counter = new CountingOutputStream(destination);
+		try {
+			transfer(key, file, counter);
+		} finally {
+			RepositoryEvents.endArtifactTransfer(event, counter.count);
+		}
+		return Status.OK_STATUS;
+	}
+
+	private void transfer(IArtifactKey key, File file, OutputStream destination) {
 		if (key.getClassifier().equals("osgi.bundle")) {
 			if (file.isDirectory()) {
 				createJarFromDir(file, destination);
@@ -198,7 +222,6 @@ public class FedoraArtifactRepository implements IArtifactRepository {
 		} else if (key.getClassifier().equals("org.eclipse.update.feature")) {
 			createJarFromDir(file, destination);
 		}
-		return Status.OK_STATUS;
 	}
 
 	private File[] getAllFiles(File root) {
@@ -216,6 +239,9 @@ public class FedoraArtifactRepository implements IArtifactRepository {
 	}
 
 	private void createJarFromDir (File file, OutputStream destination) {
+		Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+				.beginJarCreation(file) : null;
+		int nFiles = 0;
 		byte [] buf = new byte[4096];
 		try (JarOutputStream out = new JarOutputStream(destination)) {
 			File [] inputFiles = getAllFiles(file);
@@ -224,6 +250,7 @@ public class FedoraArtifactRepository implements IArtifactRepository {
 				JarEntry entry = new JarEntry(fileEntry);
 				entry.setTime(f.lastModified());
 				out.putNextEntry(entry);
+				nFiles++;
 
 				try (FileInputStream inFile = new FileInputStream(f)) {
 					int nRead = inFile.read(buf);
@@ -235,6 +262,29 @@ public class FedoraArtifactRepository implements IArtifactRepository {
 				}
 			}
 		} catch (IOException e) {
+		} finally {
+			if (event != null)
+				RepositoryEvents.endJarCreation(event, nFiles);
+		}
+	}
+
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count;
+
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
 		}
 	}
 
@@ -33,11 +33,20 @@ public class FedoraArtifactRepositoryFactory extends ArtifactRepositoryFactory {
 	public IArtifactRepository load(URI location, int flags,
 			IProgressMonitor monitor) throws ProvisionException {
 
-		if (location.getScheme().equals("fedora")) {
-			File file = new File(location.getPath());
-			if (file.exists()) {
-				return new FedoraArtifactRepository(getAgent(), location);
+		Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+				.beginRepositoryLoad(location, "artifact") : null;
+		boolean found = false;
+		try {
+			if (location.getScheme().equals("fedora")) {
+				File file = new File(location.getPath());
+				if (file.exists()) {
+					found = true;
+					return new FedoraArtifactRepository(getAgent(), location);
+				}
 			}
+		} finally {
+			if (event != null)
+				RepositoryEvents.endRepositoryLoad(event, found);
 		}
 		throw new ProvisionException(new Status(IStatus.ERROR, "org.fedoraproject.p2", ProvisionException.REPOSITORY_NOT_FOUND, "Repository Not Found", null));
 	}
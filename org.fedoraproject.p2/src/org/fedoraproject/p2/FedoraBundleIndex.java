@@ -12,10 +12,19 @@ package org.fedoraproject.p2;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -32,23 +41,102 @@ import org.slf4j.LoggerFactory;
 
 /**
  * An index for bundles (OSGi, Feature) under a specified location.
+ * <p>
+ * Files and directories can be excluded from indexing with
+ * {@value #EXCLUDE_PROPERTY} system property, which contains comma-separated
+ * glob patterns matched against paths relative to the location, for example
+ * {@code javadoc,**-sources.jar}. Patterns applying to a single location only
+ * are given in the same property suffixed with a dot and absolute path of the
+ * location, for example {@code fedora.p2.index.exclude./usr/share/java}.
+ * <p>
+ * If a fresh index of the location generated by {@link BundleIndexGenerator}
+ * exists in directory given by {@value #INDEX_DIR_PROPERTY} system property,
+ * it is read instead of scanning the location. Setting the property to an
+ * empty string disables prebuilt indices.
  */
 public class FedoraBundleIndex {
 
+	public static final String EXCLUDE_PROPERTY = "fedora.p2.index.exclude";
+
+	public static final String INDEX_DIR_PROPERTY = "fedora.p2.index.dir";
+
 	private File root;
 	private Map <IArtifactKey, File> index;
+	private Map <File, IArtifactKey> keys;
+	// Parsed bundle manifests and features, if they are retained
+	private Map <File, Object> descriptors;
+	// Identities of physical files backing indexed bundles, used while scanning
+	private Map <File, Object> fileKeys;
+	// Parsed manifests and features by identity of physical file, used while
+	// scanning so that files reachable through several symlinks are parsed once
+	private Map <Object, Object> parsed;
+	// Directories walked while scanning, recorded only when writing prebuilt index
+	private List<File> directories;
+	// Cache entries of jars which are not bundles found while scanning
+	private Set<String> nonBundlesSeen;
+	// Exclude patterns of this location, both global and location-specific
+	private final String excludePatterns;
+	private final List<PathMatcher> excludes;
+	private final NonBundleCache nonBundles = NonBundleCache.getInstance();
 	private final Logger logger = LoggerFactory.getLogger(FedoraBundleIndex.class);
 
 	public FedoraBundleIndex (File root) {
+		this(root, false);
+	}
+
+	/**
+	 * @param retainDescriptors
+	 *            whether manifests and features parsed while scanning should
+	 *            be kept, so that they don't need to be parsed again
+	 */
+	FedoraBundleIndex (File root, boolean retainDescriptors) {
 		this.root = root;
 		index = new LinkedHashMap<> ();
+		keys = new HashMap<> ();
+		descriptors = retainDescriptors ? new HashMap<> () : null;
+		excludePatterns = getExcludePatterns(root);
+		excludes = getExcludes(excludePatterns);
+	}
+
+	private static String getExcludePatterns (File root) {
+		String global = System.getProperty(EXCLUDE_PROPERTY);
+		String local = System.getProperty(EXCLUDE_PROPERTY + "." + root.getAbsolutePath());
+		if (global == null || local == null) {
+			return global != null ? global : local;
+		}
+		return global + "," + local;
+	}
+
+	private static List<PathMatcher> getExcludes (String value) {
+		List<PathMatcher> matchers = new ArrayList<> ();
+		if (value != null) {
+			for (String glob : value.split(",")) {
+				if (!glob.trim().isEmpty()) {
+					matchers.add(FileSystems.getDefault().getPathMatcher("glob:" + glob.trim()));
+				}
+			}
+		}
+		return matchers;
+	}
+
+	private boolean isExcluded (File file) {
+		if (excludes.isEmpty()) {
+			return false;
+		}
+		Path path = root.toPath().relativize(file.toPath());
+		for (PathMatcher matcher : excludes) {
+			if (matcher.matches(path)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	public Collection<File> getAllBundles (String classifier) {
 		if (! index.isEmpty()) {
 			return filterBundles(classifier);
 		}
-		gatherAllBundles(root);
+		scan();
 		return filterBundles(classifier);
 	}
 
@@ -64,76 +152,226 @@ public class FedoraBundleIndex {
 
 	public Collection<IArtifactKey> getAllArtifactKeys () {
 		if (index.isEmpty()) {
-			gatherAllBundles(root);
+			scan();
 		}
 		return index.keySet();
 	}
 
 	public File getFileForKey (IArtifactKey key) {
 		if (index.isEmpty()) {
-			gatherAllBundles(root);
+			scan();
 		}
 		return index.get(key);
 	}
 
 	public IArtifactKey getKeyForFile (File file) {
 		if (index.isEmpty()) {
-			gatherAllBundles(root);
+			scan();
 		}
-		for (Entry<IArtifactKey, File> e : index.entrySet()) {
-			if (e.getValue().equals(file)) {
-				return e.getKey();
-			}
+		return keys.get(file);
+	}
+
+	/**
+	 * @return manifest of given bundle parsed during scan, or {@code null} if
+	 *         it was not retained
+	 */
+	Dictionary<String, String> getManifest (File bundle) {
+		if (index.isEmpty()) {
+			scan();
+		}
+		@SuppressWarnings("unchecked")
+		Dictionary<String, String> manifest = descriptors != null
+				? (Dictionary<String, String>) descriptors.get(bundle) : null;
+		return manifest;
+	}
+
+	/**
+	 * @return feature in given directory parsed during scan, or {@code null}
+	 *         if it was not retained
+	 */
+	Feature getFeature (File featureDir) {
+		if (index.isEmpty()) {
+			scan();
 		}
-		return null;
+		return descriptors != null ? (Feature) descriptors.get(featureDir) : null;
 	}
 
 	public boolean containsKey (IArtifactKey key) {
 		if (index.isEmpty()) {
-			gatherAllBundles(root);
+			scan();
 		}
 		return index.containsKey(key);
 	}
 
+	private void scan () {
+		scan(true);
+	}
+
+	private void scan (boolean usePrebuilt) {
+		Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+				.beginIndexScan(root) : null;
+		fileKeys = new HashMap<> ();
+		parsed = new HashMap<> ();
+		nonBundlesSeen = new HashSet<> ();
+		try {
+			if (!usePrebuilt || !loadPrebuiltIndex()) {
+				gatherAllBundles(root);
+				// Jars which were removed or replaced since the last scan
+				// are not seen, don't let their entries accumulate
+				nonBundles.retain(root, nonBundlesSeen);
+			}
+		} finally {
+			fileKeys = null;
+			parsed = null;
+			nonBundlesSeen = null;
+			nonBundles.save();
+			if (event != null)
+				RepositoryEvents.endIndexScan(event, index.size());
+		}
+	}
+
+	/**
+	 * Scan the location and write its index to given file, so that subsequent
+	 * instances can read it instead of scanning. The index must retain
+	 * descriptors.
+	 */
+	void writePrebuiltIndex (Path file) throws IOException {
+		index.clear();
+		keys.clear();
+		descriptors.clear();
+		directories = new ArrayList<> ();
+		directories.add(root);
+		try {
+			scan(false);
+			PrebuiltBundleIndex.write(file, root, excludePatterns, directories, index, descriptors);
+		} finally {
+			directories = null;
+		}
+	}
+
+	private boolean loadPrebuiltIndex () {
+		Path file = PrebuiltBundleIndex.getFile(root);
+		List<PrebuiltBundleIndex.IndexEntry> entries = file != null
+				? PrebuiltBundleIndex.read(file, root, excludePatterns, descriptors != null) : null;
+		if (entries == null) {
+			return false;
+		}
+		for (PrebuiltBundleIndex.IndexEntry entry : entries) {
+			Object descriptor = entry.manifest;
+			if (entry.feature && descriptors != null) {
+				Feature feature = loadFeature(entry.file, null);
+				feature.setLocation(entry.file.getAbsolutePath());
+				descriptor = feature;
+			}
+			putInIndex(entry.key, entry.file, null, descriptor);
+		}
+		logger.debug("Read prebuilt index {} of {}", file, root);
+		return true;
+	}
+
+	private static BasicFileAttributes readAttributes (File file) {
+		try {
+			return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return object uniquely identifying physical file, such as device and
+	 *         inode, or {@code null} if not available
+	 */
+	private static Object getFileKey (File file) {
+		BasicFileAttributes attributes = readAttributes(file);
+		return attributes != null ? attributes.fileKey() : null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Dictionary<String, String> loadManifest (File bundle, Object fileKey)
+			throws IOException, BundleException {
+		if (fileKey != null && parsed.containsKey(fileKey)) {
+			return (Dictionary<String, String>) parsed.get(fileKey);
+		}
+		Dictionary<String, String> manifest = loadManifest(bundle);
+		if (fileKey != null) {
+			parsed.put(fileKey, manifest);
+		}
+		return manifest;
+	}
+
+	private Feature loadFeature (File featureDir, Object fileKey) {
+		if (fileKey != null && parsed.containsKey(fileKey)) {
+			return (Feature) parsed.get(fileKey);
+		}
+		Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+				.beginManifestParse(featureDir, "feature") : null;
+		Feature feature;
+		try {
+			feature = new FeatureParser().parse(featureDir);
+		} finally {
+			if (event != null)
+				RepositoryEvents.endManifestParse(event);
+		}
+		if (fileKey != null) {
+			parsed.put(fileKey, feature);
+		}
+		return feature;
+	}
+
 	private void gatherAllBundles (File dir) {
-		FeatureParser parser = new FeatureParser();
 		for (File file : dir.listFiles()) {
 			String id = null;
 			String version = null;
-			if (file.isDirectory() && file.canRead()) {
+			if (isExcluded(file)) {
+				continue;
+			} else if (file.isDirectory() && file.canRead()) {
+				if (directories != null) {
+					directories.add(file);
+				}
 				gatherAllBundles(file);
 			} else if (file.getName().endsWith(".jar")) {
 					try {
-						Dictionary<String, String> manifest = BundlesAction.loadManifest(file);
-						if (manifest != null) {
-							String bsn = manifest.get("Bundle-SymbolicName");
-							if (bsn != null) {
-								id = ManifestElement.parseHeader("Bundle-SymbolicName", bsn)
-										[0].getValue();
-								version = manifest.get("Bundle-Version");
-								putInIndex(BundlesAction.createBundleArtifactKey(id, version), file);
-							}
+						BasicFileAttributes attributes = readAttributes(file);
+						String nonBundleEntry = NonBundleCache.getEntry(attributes);
+						if (nonBundles.contains(root, nonBundleEntry)) {
+							nonBundlesSeen.add(nonBundleEntry);
+							continue;
+						}
+						Object fileKey = attributes != null ? attributes.fileKey() : null;
+						Dictionary<String, String> manifest = loadManifest(file, fileKey);
+						String bsn = manifest != null ? manifest.get("Bundle-SymbolicName") : null;
+						if (bsn != null) {
+							id = ManifestElement.parseHeader("Bundle-SymbolicName", bsn)
+									[0].getValue();
+							version = manifest.get("Bundle-Version");
+							putInIndex(BundlesAction.createBundleArtifactKey(id, version), file, fileKey, manifest);
+						} else if (nonBundleEntry != null) {
+							nonBundles.add(root, nonBundleEntry);
+							nonBundlesSeen.add(nonBundleEntry);
 						}
 					} catch (IOException | BundleException | IllegalArgumentException e) {
 						// Skip bundle if invalid or improper arguments for artifact creation
 					}
 			} else if (file.getName().equals("feature.xml")) {
-				Feature feature = parser.parse(file.getParentFile());
+				Object fileKey = getFileKey(file);
+				Feature feature = loadFeature(file.getParentFile(), fileKey);
+				feature.setLocation(file.getParentFile().getAbsolutePath());
 				id = feature.getId();
 				version = feature.getVersion();
-				putInIndex(FeaturesAction.createFeatureArtifactKey(id, version), file.getParentFile());
+				putInIndex(FeaturesAction.createFeatureArtifactKey(id, version), file.getParentFile(), fileKey, feature);
 			} else if (file.getName().equals("MANIFEST.MF")
 					&& file.getParentFile().getName().equals("META-INF")) {
 				try {
 					File bundleDir = file.getParentFile().getParentFile();
-					Dictionary<String, String> manifest = BundlesAction.loadManifest(bundleDir);
+					Object fileKey = getFileKey(file);
+					Dictionary<String, String> manifest = loadManifest(bundleDir, fileKey);
 					if (manifest != null && "dir".equals(manifest.get("Eclipse-BundleShape"))) {
 						String bsn = manifest.get("Bundle-SymbolicName");
 						if (bsn != null) {
 							id = ManifestElement.parseHeader("Bundle-SymbolicName", bsn)
 									[0].getValue();
 							version = manifest.get("Bundle-Version");
-							putInIndex(BundlesAction.createBundleArtifactKey(id, version), bundleDir);
+							putInIndex(BundlesAction.createBundleArtifactKey(id, version), bundleDir, fileKey, manifest);
 						}
 					}
 				} catch (IOException | BundleException | IllegalArgumentException e) {
@@ -143,13 +381,40 @@ public class FedoraBundleIndex {
 		}
 	}
 
-	private void putInIndex (IArtifactKey key, File file) {
+	private static Dictionary<String, String> loadManifest (File bundle)
+			throws IOException, BundleException {
+		Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+				.beginManifestParse(bundle, "bundle") : null;
+		try {
+			return BundlesAction.loadManifest(bundle);
+		} finally {
+			if (event != null)
+				RepositoryEvents.endManifestParse(event);
+		}
+	}
+
+	private void putInIndex (IArtifactKey key, File file, Object fileKey, Object descriptor) {
 		boolean isSameFile = false;
 		File prev = index.put(key, file);
+		keys.put(file, key);
+		if (descriptors != null)
+			descriptors.put(file, descriptor);
+		Object prevFileKey = prev != null ? fileKeys.get(prev) : null;
+		fileKeys.put(file, fileKey);
 		if (prev != null) {
-			try {
-				isSameFile = file.getCanonicalFile().equals(prev.getCanonicalFile());
-			} catch (IOException e) {
+			if (!prev.equals(file)) {
+				keys.remove(prev);
+				fileKeys.remove(prev);
+				if (descriptors != null)
+					descriptors.remove(prev);
+			}
+			if (fileKey != null && prevFileKey != null) {
+				isSameFile = fileKey.equals(prevFileKey);
+			} else {
+				try {
+					isSameFile = file.getCanonicalFile().equals(prev.getCanonicalFile());
+				} catch (IOException e) {
+				}
 			}
 			if (!isSameFile) {
 				logger.warn("Multiple artifacts detected for {}", key.toString());
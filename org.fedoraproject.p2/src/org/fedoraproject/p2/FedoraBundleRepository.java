@@ -12,7 +12,9 @@ package org.fedoraproject.p2;
 
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -21,7 +23,6 @@ import java.util.Set;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.core.ProvisionException;
-import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
@@ -36,6 +37,22 @@ public class FedoraBundleRepository extends AbstractBundleRepository {
 	private Set<Path> dropinsLocations = new LinkedHashSet<>();
 
 	public FedoraBundleRepository(SCL scl) {
+		this(scl, new HashMap<>(), new HashMap<>());
+	}
+
+	/**
+	 * Create a repository which reuses metadata repositories already loaded by
+	 * other repositories.
+	 *
+	 * @param realPaths
+	 *            shared cache of resolved real paths
+	 * @param loadedRepos
+	 *            shared metadata repositories, keyed by real path of their
+	 *            location
+	 */
+	FedoraBundleRepository(SCL scl, Map<Path, Path> realPaths,
+			Map<Path, IMetadataRepository> loadedRepos) {
+		super(realPaths);
 		metaRepos = new LinkedHashMap<>();
 
 		Set<Path> platformLocations = new LinkedHashSet<>();
@@ -51,11 +68,20 @@ public class FedoraBundleRepository extends AbstractBundleRepository {
 			IProvisioningAgent agent = P2Utils.getAgent();
 			IMetadataRepositoryManager metadataRM = (IMetadataRepositoryManager) agent.getService(IMetadataRepositoryManager.SERVICE_NAME);
 			for (Path repoPath : allLocations) {
+				// Locations shared with other SCLs are indexed only once
+				Path realPath = toRealPath(repoPath);
+				IMetadataRepository sharedRepo = realPath != null ? loadedRepos.get(realPath) : null;
+				if (sharedRepo != null) {
+					metaRepos.put(repoPath, sharedRepo);
+					continue;
+				}
 				try {
 					String fragment = scl.getSclName() != null ? "#" + scl.getSclName() : "";
 					URI uri = new URI("fedora:" + repoPath + fragment);
 					IMetadataRepository metaRepo = metadataRM.loadRepository(uri, new NullProgressMonitor());
 					metaRepos.put(repoPath, metaRepo);
+					if (realPath != null)
+						loadedRepos.put(realPath, metaRepo);
 				} catch (ProvisionException e) {
 					// ignore and continue if there are repository issues
 				}
@@ -66,22 +92,22 @@ public class FedoraBundleRepository extends AbstractBundleRepository {
 
 		platformUnits = enumerateUnits(platformLocations);
 
-		internalUnits = enumerateUnits(dropinsLocations);
-		internalUnits.removeAll(platformUnits);
-
 		externalUnits = enumerateUnits(externalLocations);
-		externalUnits.removeAll(platformUnits);
+		externalUnits.andNot(platformUnits);
+
+		internalUnits = enumerateUnits(dropinsLocations);
+		internalUnits.andNot(platformUnits);
 	}
 
 	/**
-	 * @return A set of installable units reachable from given locations.
+	 * @return A set of indices of installable units reachable from given locations.
 	 */
-	private Set<IInstallableUnit> enumerateUnits(Set<Path> locations){
-		Set<IInstallableUnit> candidates = new LinkedHashSet<>();
+	private BitSet enumerateUnits(Set<Path> locations){
+		BitSet candidates = new BitSet();
 		for (Path loc : locations) {
 			IMetadataRepository repo = metaRepos.get(loc);
 			if (repo != null) {
-				candidates.addAll(repo.query(QueryUtil.ALL_UNITS, new NullProgressMonitor()).toUnmodifiableSet());
+				candidates.or(unitTable.addAll(repo.query(QueryUtil.ALL_UNITS, new NullProgressMonitor())));
 			}
 		}
 		return candidates;
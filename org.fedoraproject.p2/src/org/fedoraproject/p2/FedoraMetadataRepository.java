@@ -12,11 +12,15 @@ package org.fedoraproject.p2;
 
 import java.io.File;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -27,17 +31,24 @@ import org.eclipse.equinox.p2.core.IPool;
 import org.eclipse.equinox.p2.core.IProvisioningAgent;
 import org.eclipse.equinox.p2.metadata.IArtifactKey;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.publisher.AdviceFileAdvice;
 import org.eclipse.equinox.p2.publisher.IPublisherInfo;
 import org.eclipse.equinox.p2.publisher.IPublisherResult;
 import org.eclipse.equinox.p2.publisher.PublisherInfo;
 import org.eclipse.equinox.p2.publisher.PublisherResult;
+import org.eclipse.equinox.p2.publisher.eclipse.BundleShapeAdvice;
+import org.eclipse.equinox.p2.publisher.eclipse.BundlesAction;
+import org.eclipse.equinox.p2.publisher.eclipse.Feature;
 import org.eclipse.equinox.p2.publisher.eclipse.FeaturesAction;
+import org.eclipse.equinox.p2.publisher.eclipse.IBundleShapeAdvice;
 import org.eclipse.equinox.p2.query.IQuery;
 import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.IRepositoryReference;
 import org.eclipse.equinox.p2.repository.IRunnableWithProgress;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.osgi.service.resolver.BundleDescription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -134,29 +145,45 @@ public class FedoraMetadataRepository implements IMetadataRepository {
 
 	private Set<IInstallableUnit> getAllSystemIUs() {
 	    if (unitCache.isEmpty()) {
-	        FedoraBundleIndex index = new FedoraBundleIndex(new File(location.getPath()));
+	        FedoraBundleIndex index = new FedoraBundleIndex(new File(location.getPath()), true);
 	        Collection<File> bundlePlugins = index.getAllBundles("osgi.bundle");
 	        Collection<File> bundleFeatures = index.getAllBundles("org.eclipse.update.feature");
 
+	        Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+	                .beginUnitCreation(location, "bundle") : null;
 	        for (File bundleFile : bundlePlugins) {
 	            IArtifactKey key = index.getKeyForFile(bundleFile);
 	            try {
-	                IInstallableUnit unit = PublisherUtil.createBundleIU(key, bundleFile);
+	                IInstallableUnit unit = createBundleIU(key, bundleFile, index.getManifest(bundleFile));
 	                P2Utils.setPath(unit, bundleFile);
 	                unitCache.add(unit);
 	            } catch (RuntimeException e) {
 	                logger.warn("{} ({}) is not a valid bundle so it will be ignored.", key, bundleFile);
 	            }
 	        }
+	        if (event != null)
+	            RepositoryEvents.endUnitCreation(event, unitCache.size());
 
 	        if (! bundleFeatures.isEmpty()) {
+	            event = P2Utils.isJfrAvailable() ? RepositoryEvents
+	                    .beginUnitCreation(location, "feature") : null;
 	            IPublisherInfo info = new PublisherInfo();
 	            IPublisherResult result = new PublisherResult();
-	            FeaturesAction fAction = new FeaturesAction(bundleFeatures.toArray(new File[0]));
+	            List<Feature> features = new ArrayList<>(bundleFeatures.size());
+	            for (File featureDir : bundleFeatures)
+	                features.add(index.getFeature(featureDir));
+	            FeaturesAction fAction = new FeaturesAction(features.toArray(new Feature[0]));
 	            fAction.perform(info, result, new NullProgressMonitor());
 	            IQueryResult<IInstallableUnit> units = result.query(QueryUtil.createIUAnyQuery(), new NullProgressMonitor());
-	            unitCache.addAll(units.toUnmodifiableSet());
+	            Set<IInstallableUnit> featureUnits = units.toUnmodifiableSet();
+	            unitCache.addAll(featureUnits);
+	            if (event != null)
+	                RepositoryEvents.endUnitCreation(event, featureUnits.size());
 	        }
+
+	        UnitPool pool = new UnitPool();
+	        for (IInstallableUnit unit : unitCache)
+	            pool.compress(unit);
 	    }
 
 		for (IInstallableUnit unit : unitCache)
@@ -165,6 +192,29 @@ public class FedoraMetadataRepository implements IMetadataRepository {
 	    return unitCache;
 	}
 
+	/**
+	 * Create bundle IU in the same way as
+	 * {@link PublisherUtil#createBundleIU(IArtifactKey, File)}, but from
+	 * manifest which was already parsed when indexing.
+	 */
+	private static IInstallableUnit createBundleIU(IArtifactKey key, File bundleFile,
+			Dictionary<String, String> manifest) {
+		if (manifest == null)
+			return PublisherUtil.createBundleIU(key, bundleFile);
+		BundleDescription bundle = BundlesAction.createBundleDescription(manifest, bundleFile);
+		if (bundle == null)
+			return null;
+		PublisherInfo info = new PublisherInfo();
+		Version version = Version.create(bundle.getVersion().toString());
+		AdviceFileAdvice advice = new AdviceFileAdvice(bundle.getSymbolicName(), version,
+				new org.eclipse.core.runtime.Path(bundleFile.getAbsolutePath()), AdviceFileAdvice.BUNDLE_ADVICE_FILE);
+		if (advice.containsAdvice())
+			info.addAdvice(advice);
+		String shape = bundleFile.isDirectory() ? IBundleShapeAdvice.DIR : IBundleShapeAdvice.JAR;
+		info.addAdvice(new BundleShapeAdvice(bundle.getSymbolicName(), version, shape));
+		return BundlesAction.createBundleIU(bundle, key, info);
+	}
+
 	@Override
 	public void addInstallableUnits(
 			Collection<IInstallableUnit> installableUnits) {
@@ -198,6 +248,19 @@ public class FedoraMetadataRepository implements IMetadataRepository {
 
 	@Override
 	public void compress(IPool<IInstallableUnit> iuPool) {
+		if (iuPool == null)
+			return;
+		Set<IInstallableUnit> pooledUnits = new LinkedHashSet<>();
+		for (IInstallableUnit unit : unitCache) {
+			IInstallableUnit pooled = iuPool.add(unit);
+			// Equal units may come from different files or collections
+			if (pooled != unit
+					&& (!Objects.equals(P2Utils.getPath(pooled), P2Utils.getPath(unit))
+					|| !Objects.equals(P2Utils.getSclNamespace(pooled), P2Utils.getSclNamespace(unit))))
+				pooled = unit;
+			pooledUnits.add(pooled);
+		}
+		unitCache = pooledUnits;
 	}
 
 }
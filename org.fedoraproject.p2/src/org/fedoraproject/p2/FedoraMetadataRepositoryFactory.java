@@ -33,11 +33,20 @@ public class FedoraMetadataRepositoryFactory extends MetadataRepositoryFactory {
 	public IMetadataRepository load(URI location, int flags,
 			IProgressMonitor monitor) throws ProvisionException {
 
-		if (location.getScheme().equals("fedora")) {
-			File file = new File(location.getPath());
-			if (file.exists()) {
-				return new FedoraMetadataRepository(getAgent(), location);
+		Object event = P2Utils.isJfrAvailable() ? RepositoryEvents
+				.beginRepositoryLoad(location, "metadata") : null;
+		boolean found = false;
+		try {
+			if (location.getScheme().equals("fedora")) {
+				File file = new File(location.getPath());
+				if (file.exists()) {
+					found = true;
+					return new FedoraMetadataRepository(getAgent(), location);
+				}
 			}
+		} finally {
+			if (event != null)
+				RepositoryEvents.endRepositoryLoad(event, found);
 		}
 		throw new ProvisionException(new Status(IStatus.ERROR, "org.fedoraproject.p2", ProvisionException.REPOSITORY_NOT_FOUND, "Repository Not Found", null));
 	}
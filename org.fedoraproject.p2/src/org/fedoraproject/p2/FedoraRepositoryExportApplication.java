@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Application exporting a fedora: repository with
+ * {@link FedoraRepositoryExporter}:
+ *
+ * <pre>
+ * eclipse -application org.fedoraproject.p2.export -source /usr/share/java -destination /var/cache/p2/java
+ * </pre>
+ */
+public class FedoraRepositoryExportApplication implements IApplication {
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		String[] args = (String[]) context.getArguments().get(
+				IApplicationContext.APPLICATION_ARGS);
+		Path source = null;
+		Path destination = null;
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			if (args[i].equals("-source"))
+				source = Paths.get(args[i + 1]);
+			else if (args[i].equals("-destination"))
+				destination = Paths.get(args[i + 1]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[i]);
+		}
+		if (source == null || destination == null)
+			throw new IllegalArgumentException(
+					"Both -source and -destination must be specified");
+
+		new FedoraRepositoryExporter().export(source, destination);
+		return IApplication.EXIT_OK;
+	}
+
+	@Override
+	public void stop() {
+	}
+}
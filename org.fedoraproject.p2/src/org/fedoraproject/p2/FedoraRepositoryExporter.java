@@ -0,0 +1,343 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.artifact.repository.simple.SimpleArtifactDescriptor;
+import org.eclipse.equinox.internal.p2.metadata.ArtifactKey;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.internal.repository.tools.XZCompressor;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.publisher.Publisher;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactKeyQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactDescriptor;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exports a fedora: repository to a standard simple p2 repository with XZ
+ * compressed metadata, so that stock p2 consumers can load pre-compiled
+ * metadata instead of indexing the location every time. Jar artifacts are
+ * hardlinked into the exported repository if possible; directories and files
+ * on other file systems are referenced at their original location.
+ * <p>
+ * Exports are incremental. Size and modification time of every exported
+ * artifact are recorded in the exported repository, and only units and
+ * artifacts which changed since the previous export are replaced. If nothing
+ * changed, the exported repository is not touched at all.
+ */
+public class FedoraRepositoryExporter {
+	private static final Logger logger = LoggerFactory
+			.getLogger(FedoraRepositoryExporter.class);
+
+	private static final String STATE_FILE = "fedora-export.properties";
+
+	// Stored in export state file. Exported repository with state of other
+	// format is exported again as a whole instead of incrementally, so this
+	// needs to change along with the way units or artifacts are exported.
+	private static final String FORMAT = "1";
+
+	private static final String FORMAT_KEY = "format";
+
+	private static final String ARTIFACT_FOLDER = "artifact.folder";
+
+	private final IProvisioningAgent agent;
+
+	private final IMetadataRepositoryManager metadataManager;
+
+	private final IArtifactRepositoryManager artifactManager;
+
+	public FedoraRepositoryExporter() throws ProvisionException {
+		this(P2Utils.getAgent());
+	}
+
+	public FedoraRepositoryExporter(IProvisioningAgent agent) {
+		this.agent = agent;
+		metadataManager = (IMetadataRepositoryManager) agent
+				.getService(IMetadataRepositoryManager.SERVICE_NAME);
+		artifactManager = (IArtifactRepositoryManager) agent
+				.getService(IArtifactRepositoryManager.SERVICE_NAME);
+	}
+
+	/**
+	 * Export bundles and features under given location.
+	 *
+	 * @param location
+	 *            location of the fedora: repository
+	 * @param destination
+	 *            directory of the exported repository
+	 * @return {@code true} if the exported repository was written,
+	 *         {@code false} if it was up to date
+	 */
+	public boolean export(Path location, Path destination)
+			throws IOException, ProvisionException {
+		URI source;
+		try {
+			source = new URI("fedora:" + location.toAbsolutePath());
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+		IProgressMonitor monitor = new NullProgressMonitor();
+
+		// Source repositories are unloaded afterwards, so that subsequent
+		// exports see changes of the location
+		try {
+			IMetadataRepository sourceMetadata = metadataManager
+					.loadRepository(source, monitor);
+			FedoraArtifactRepository sourceArtifacts = (FedoraArtifactRepository) artifactManager
+					.loadRepository(source, monitor);
+			return export(sourceMetadata, sourceArtifacts, destination);
+		} finally {
+			metadataManager.removeRepository(source);
+			artifactManager.removeRepository(source);
+		}
+	}
+
+	private boolean export(IMetadataRepository sourceMetadata,
+			FedoraArtifactRepository sourceArtifacts, Path destination)
+			throws IOException, ProvisionException {
+		Properties state = new Properties();
+		state.setProperty(FORMAT_KEY, FORMAT);
+		for (IArtifactKey key : sourceArtifacts.query(
+				ArtifactKeyQuery.ALL_KEYS, null))
+			state.setProperty(key.toExternalForm(),
+					getStamp(sourceArtifacts.getArtifactFile(key)));
+
+		Properties previous = readState(destination);
+		if (state.equals(previous)) {
+			logger.debug("Exported repository {} is up to date", destination);
+			return false;
+		}
+		if (previous != null && !FORMAT.equals(previous.get(FORMAT_KEY)))
+			previous = null;
+
+		// Artifacts which are new, changed or no longer exist
+		Set<IArtifactKey> added = new HashSet<>();
+		Set<IArtifactKey> removed = new HashSet<>();
+		for (IArtifactKey key : sourceArtifacts.query(
+				ArtifactKeyQuery.ALL_KEYS, null)) {
+			String stamp = state.getProperty(key.toExternalForm());
+			if (previous == null
+					|| !stamp.equals(previous.getProperty(key.toExternalForm()))) {
+				added.add(key);
+				removed.add(key);
+			}
+		}
+		if (previous != null) {
+			for (String name : previous.stringPropertyNames()) {
+				if (!name.equals(FORMAT_KEY) && !state.containsKey(name))
+					removed.add(ArtifactKey.parse(name));
+			}
+		}
+
+		URI uri = destination.toUri();
+		String name = "Fedora repository " + destination;
+		IMetadataRepository metadata = Publisher.createMetadataRepository(
+				agent, uri, name, true, false);
+		IArtifactRepository artifacts = Publisher.createArtifactRepository(
+				agent, uri, name, true, false);
+		try {
+			if (previous == null) {
+				metadata.removeAll();
+				artifacts.removeAll(null);
+			}
+			updateMetadata(sourceMetadata, metadata, previous == null ? null
+					: removed);
+			updateArtifacts(sourceArtifacts, artifacts, destination, added,
+					removed);
+		} finally {
+			metadataManager.removeRepository(uri);
+			artifactManager.removeRepository(uri);
+		}
+
+		// Original metadata files are kept, so that the repository can be
+		// loaded as modifiable by the next export
+		XZCompressor compressor = new XZCompressor();
+		compressor.setRepoFolder(destination.toString());
+		compressor.setPreserveOriginalFile(true);
+		compressor.compressRepo();
+
+		writeState(destination, state);
+		logger.info("Exported {} artifacts to {}, {} of them changed",
+				state.size() - 1, destination, added.size());
+		return true;
+	}
+
+	/**
+	 * Replace units of changed artifacts and units without artifacts, such as
+	 * feature groups, which are cheap to replace.
+	 *
+	 * @param removed
+	 *            keys of artifacts which changed or no longer exist, or
+	 *            {@code null} if all units should be added
+	 */
+	private static void updateMetadata(IMetadataRepository source,
+			IMetadataRepository target, Set<IArtifactKey> removed) {
+		Set<IInstallableUnit> sourceUnits = source.query(
+				QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet();
+		List<IInstallableUnit> toRemove = new ArrayList<>();
+		List<IInstallableUnit> toAdd = new ArrayList<>();
+		if (removed == null) {
+			toAdd.addAll(sourceUnits);
+		} else {
+			Set<IInstallableUnit> targetUnits = target.query(
+					QueryUtil.createIUAnyQuery(), null).toUnmodifiableSet();
+			for (IInstallableUnit unit : targetUnits) {
+				if (!sourceUnits.contains(unit) || isChanged(unit, removed))
+					toRemove.add(unit);
+			}
+			for (IInstallableUnit unit : sourceUnits) {
+				if (!targetUnits.contains(unit) || isChanged(unit, removed))
+					toAdd.add(unit);
+			}
+		}
+		target.executeBatch(monitor -> {
+			target.removeInstallableUnits(toRemove);
+			target.addInstallableUnits(toAdd);
+		}, null);
+	}
+
+	private static boolean isChanged(IInstallableUnit unit,
+			Set<IArtifactKey> removed) {
+		if (unit.getArtifacts().isEmpty())
+			return true;
+		for (IArtifactKey key : unit.getArtifacts()) {
+			if (removed.contains(key))
+				return true;
+		}
+		return false;
+	}
+
+	private static void updateArtifacts(FedoraArtifactRepository source,
+			IArtifactRepository target, Path destination,
+			Set<IArtifactKey> added, Set<IArtifactKey> removed)
+			throws IOException {
+		// Removing a descriptor deletes its artifact, so it must be done
+		// before artifacts are linked again
+		target.executeBatch(monitor -> target.removeDescriptors(
+				removed.toArray(new IArtifactKey[0]), null), null);
+		for (IArtifactKey key : removed)
+			Files.deleteIfExists(getLinkPath(destination, key));
+
+		List<IArtifactDescriptor> descriptors = new ArrayList<>();
+		for (IArtifactKey key : added) {
+			File file = source.getArtifactFile(key);
+			SimpleArtifactDescriptor descriptor = new SimpleArtifactDescriptor(
+					key);
+			if (file.isDirectory()) {
+				descriptor.setProperty(ARTIFACT_FOLDER, Boolean.TRUE.toString());
+				descriptor.setRepositoryProperty(
+						SimpleArtifactDescriptor.ARTIFACT_REFERENCE, file
+								.toURI().toString());
+			} else {
+				String size = Long.toString(file.length());
+				descriptor.setProperty(IArtifactDescriptor.ARTIFACT_SIZE, size);
+				descriptor.setProperty(IArtifactDescriptor.DOWNLOAD_SIZE, size);
+				if (!link(file.toPath(), getLinkPath(destination, key)))
+					descriptor.setRepositoryProperty(
+							SimpleArtifactDescriptor.ARTIFACT_REFERENCE, file
+									.toURI().toString());
+			}
+			descriptors.add(descriptor);
+		}
+
+		target.addDescriptors(descriptors.toArray(new IArtifactDescriptor[0]),
+				null);
+	}
+
+	/**
+	 * @return path of hardlink to given jar artifact, as given by default
+	 *         mapping rules of simple artifact repositories
+	 */
+	private static Path getLinkPath(Path destination, IArtifactKey key) {
+		String dir = key.getClassifier().equals("osgi.bundle") ? "plugins"
+				: "features";
+		return destination.resolve(dir).resolve(
+				key.getId() + "_" + key.getVersion() + ".jar");
+	}
+
+	private static boolean link(Path file, Path link) throws IOException {
+		Files.createDirectories(link.getParent());
+		Files.deleteIfExists(link);
+		try {
+			Files.createLink(link, file);
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			logger.debug("Unable to link {} to {}, referencing it instead",
+					file, link, e);
+			return false;
+		}
+	}
+
+	private static String getStamp(File file) {
+		File stamp = file;
+		if (file.isDirectory()) {
+			stamp = new File(file, "feature.xml");
+			if (!stamp.exists())
+				stamp = new File(file, "META-INF/MANIFEST.MF");
+		}
+		return file.getPath() + " " + stamp.length() + " "
+				+ stamp.lastModified();
+	}
+
+	private static Properties readState(Path destination) {
+		Path file = destination.resolve(STATE_FILE);
+		if (!Files.isRegularFile(file))
+			return null;
+		Properties state = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			state.load(in);
+			return state;
+		} catch (IOException | IllegalArgumentException e) {
+			logger.warn("Unable to read state of exported repository {}",
+					destination, e);
+			return null;
+		}
+	}
+
+	private static void writeState(Path destination, Properties state)
+			throws IOException {
+		Path tempFile = Files.createTempFile(destination, STATE_FILE, ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tempFile)) {
+				state.store(out, null);
+			}
+			Files.move(tempFile, destination.resolve(STATE_FILE),
+					StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+}
@@ -0,0 +1,675 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.internal.p2.metadata.repository.LocalMetadataRepository;
+import org.eclipse.equinox.internal.p2.metadata.repository.MetadataRepositoryIO;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.IRepositoryReference;
+import org.eclipse.equinox.p2.repository.artifact.ArtifactKeyQuery;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
+import org.eclipse.equinox.p2.repository.metadata.spi.AbstractMetadataRepository.RepositoryState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Embeddable HTTP server exposing fedora: repositories as simple p2
+ * repositories, for clients which can reach a local port, but not the file
+ * system the bundles are installed on.
+ * <p>
+ * Repository metadata is generated from the bundle index of each location
+ * and regenerated whenever modification time of any directory under the
+ * location changes. Jar artifacts are sent directly from the file system
+ * with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)};
+ * directory-shaped bundles and features are packed into jars once and kept
+ * in a cache directory. All responses carry an entity tag and conditional
+ * requests with {@code If-None-Match} are honoured.
+ * <p>
+ * Connections are served by a bounded thread pool and closed when the client
+ * sends no request within {@link #setReadTimeout(int) read timeout}.
+ */
+public class FedoraRepositoryServer implements Closeable {
+	private static final Logger logger = LoggerFactory
+			.getLogger(FedoraRepositoryServer.class);
+
+	// Minimal interval between checks whether a location changed, in ms
+	private static final long CHECK_INTERVAL = 1000;
+
+	private static final int MAX_HEADER_SIZE = 16384;
+
+	// Connections are served by a bounded number of threads, further accepted
+	// connections wait in a bounded queue and are dropped when it is full
+	private static final int MAX_THREADS = 16;
+
+	private static final int MAX_QUEUED_CONNECTIONS = 64;
+
+	private static final String P2_INDEX = "version=1\n"
+			+ "metadata.repository.factory.order=content.xml,\\!\n"
+			+ "artifact.repository.factory.order=artifacts.xml,\\!\n";
+
+	private final IProvisioningAgent agent;
+
+	private final IMetadataRepositoryManager metadataManager;
+
+	private final IArtifactRepositoryManager artifactManager;
+
+	private final Path cacheDir;
+
+	private final ServerSocketChannel serverChannel;
+
+	private final ThreadPoolExecutor executor;
+
+	private volatile int readTimeout = 30000;
+
+	private final Map<String, ServedRepository> repositories = new ConcurrentHashMap<>();
+
+	private Thread acceptor;
+
+	/**
+	 * Create server listening on given address.
+	 *
+	 * @param cacheDir
+	 *            directory where jars packed from directories are kept, or
+	 *            {@code null} to use a temporary directory
+	 */
+	public FedoraRepositoryServer(InetSocketAddress address, Path cacheDir)
+			throws IOException, ProvisionException {
+		this(P2Utils.getAgent(), address, cacheDir);
+	}
+
+	public FedoraRepositoryServer(IProvisioningAgent agent,
+			InetSocketAddress address, Path cacheDir) throws IOException {
+		this.agent = agent;
+		metadataManager = (IMetadataRepositoryManager) agent
+				.getService(IMetadataRepositoryManager.SERVICE_NAME);
+		artifactManager = (IArtifactRepositoryManager) agent
+				.getService(IArtifactRepositoryManager.SERVICE_NAME);
+		this.cacheDir = cacheDir != null ? cacheDir : Files
+				.createTempDirectory("fedora-p2-server-");
+		Files.createDirectories(this.cacheDir);
+		serverChannel = ServerSocketChannel.open();
+		serverChannel.bind(address);
+		executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<>(
+						MAX_QUEUED_CONNECTIONS), runnable -> {
+					Thread thread = new Thread(runnable, "fedora-p2-server");
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Set maximal time to wait for request from connected client, including
+	 * idle time between requests on a persistent connection. Connections
+	 * timing out are closed.
+	 *
+	 * @param readTimeout
+	 *            timeout in milliseconds, 30 seconds by default
+	 */
+	public void setReadTimeout(int readTimeout) {
+		if (readTimeout <= 0)
+			throw new IllegalArgumentException("Invalid read timeout "
+					+ readTimeout);
+		this.readTimeout = readTimeout;
+	}
+
+	public int getPort() throws IOException {
+		return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+	}
+
+	/**
+	 * Expose bundles and features under given location.
+	 *
+	 * @param name
+	 *            name of the repository, which is the first segment of its
+	 *            path on this server
+	 * @return URI of the repository
+	 */
+	public URI addRepository(String name, Path location) throws IOException {
+		if (name.isEmpty() || name.contains("/"))
+			throw new IllegalArgumentException("Invalid repository name "
+					+ name);
+		repositories.put(name, new ServedRepository(location));
+
+		InetAddress address = ((InetSocketAddress) serverChannel
+				.getLocalAddress()).getAddress();
+		String host = address.isAnyLocalAddress() ? "localhost" : address
+				.getHostAddress();
+		try {
+			return new URI("http", null, host, getPort(), "/" + name + "/",
+					null, null);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Start accepting connections in background.
+	 */
+	public synchronized void start() {
+		if (acceptor != null)
+			return;
+		acceptor = new Thread(this::accept, "fedora-p2-server-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	@Override
+	public void close() throws IOException {
+		serverChannel.close();
+		executor.shutdownNow();
+		for (ServedRepository repository : repositories.values())
+			repository.unload();
+	}
+
+	private void accept() {
+		try {
+			while (true) {
+				SocketChannel channel = serverChannel.accept();
+				try {
+					executor.execute(() -> serve(channel));
+				} catch (RejectedExecutionException e) {
+					logger.debug("Too many connections, dropping one");
+					channel.close();
+				}
+			}
+		} catch (ClosedChannelException e) {
+			// Server was closed
+		} catch (IOException e) {
+			logger.error("Unable to accept connections", e);
+		}
+	}
+
+	private static class Request {
+		String method;
+
+		String path;
+
+		boolean keepAlive;
+
+		final Map<String, String> headers = new HashMap<>();
+	}
+
+	private static class Response {
+		final int status;
+
+		final String reason;
+
+		final Map<String, String> headers = new LinkedHashMap<>();
+
+		byte[] body;
+
+		Path file;
+
+		Response(int status, String reason) {
+			this.status = status;
+			this.reason = reason;
+		}
+
+		static Response error(int status, String reason) {
+			Response response = new Response(status, reason);
+			response.headers.put("Content-Type", "text/plain");
+			response.body = (reason + "\n").getBytes(StandardCharsets.UTF_8);
+			return response;
+		}
+	}
+
+	private void serve(SocketChannel channel) {
+		try (SocketChannel c = channel) {
+			// Reads from channel cannot time out, but reads from its socket
+			// stream can
+			c.socket().setSoTimeout(readTimeout);
+			InputStream in = c.socket().getInputStream();
+			ByteBuffer buffer = ByteBuffer.allocate(MAX_HEADER_SIZE);
+			while (true) {
+				Request request = readRequest(in, buffer);
+				if (request == null)
+					return;
+				Response response;
+				try {
+					response = respond(request);
+				} catch (IOException | ProvisionException | RuntimeException e) {
+					logger.warn("Unable to serve {}", request.path, e);
+					response = Response.error(500, "Internal Server Error");
+				}
+				writeResponse(c, request, response);
+				if (!request.keepAlive)
+					return;
+			}
+		} catch (IOException e) {
+			logger.debug("Connection closed", e);
+		}
+	}
+
+	/**
+	 * Read request head, leaving any bytes following it in the buffer.
+	 *
+	 * @return the request, or {@code null} if connection should be closed
+	 */
+	private static Request readRequest(InputStream in, ByteBuffer buffer)
+			throws IOException {
+		int end;
+		while ((end = findHeadEnd(buffer)) < 0) {
+			if (!buffer.hasRemaining())
+				return null;
+			int n = in.read(buffer.array(), buffer.position(),
+					buffer.remaining());
+			if (n < 0)
+				return null;
+			buffer.position(buffer.position() + n);
+		}
+		String head = new String(buffer.array(), 0, end,
+				StandardCharsets.ISO_8859_1);
+		buffer.flip();
+		buffer.position(end + 4);
+		buffer.compact();
+
+		String[] lines = head.split("\r\n");
+		String[] requestLine = lines[0].split(" ");
+		if (requestLine.length != 3)
+			return null;
+		Request request = new Request();
+		request.method = requestLine[0];
+		request.path = requestLine[1];
+		for (int i = 1; i < lines.length; i++) {
+			int colon = lines[i].indexOf(':');
+			if (colon > 0)
+				request.headers.put(lines[i].substring(0, colon).trim()
+						.toLowerCase(Locale.ROOT), lines[i].substring(colon + 1)
+						.trim());
+		}
+		String connection = request.headers.getOrDefault("connection", "");
+		request.keepAlive = requestLine[2].equals("HTTP/1.1")
+				&& !connection.equalsIgnoreCase("close");
+		// Requests with body are not supported
+		if (request.headers.containsKey("content-length")
+				|| request.headers.containsKey("transfer-encoding"))
+			request.keepAlive = false;
+		return request;
+	}
+
+	private static int findHeadEnd(ByteBuffer buffer) {
+		byte[] bytes = buffer.array();
+		for (int i = 0; i + 3 < buffer.position(); i++) {
+			if (bytes[i] == '\r' && bytes[i + 1] == '\n' && bytes[i + 2] == '\r'
+					&& bytes[i + 3] == '\n')
+				return i;
+		}
+		return -1;
+	}
+
+	private Response respond(Request request) throws IOException,
+			ProvisionException {
+		if (!request.method.equals("GET") && !request.method.equals("HEAD")) {
+			Response response = Response.error(405, "Method Not Allowed");
+			response.headers.put("Allow", "GET, HEAD");
+			return response;
+		}
+
+		String path;
+		try {
+			path = new URI(request.path).getPath();
+		} catch (URISyntaxException e) {
+			return Response.error(400, "Bad Request");
+		}
+		int slash = path != null && path.startsWith("/") ? path.indexOf('/', 1)
+				: -1;
+		ServedRepository repository = slash > 0 ? repositories.get(path
+				.substring(1, slash)) : null;
+		if (repository == null)
+			return Response.error(404, "Not Found");
+		String resource = path.substring(slash + 1);
+		Snapshot snapshot = repository.getSnapshot();
+
+		Response response = new Response(200, "OK");
+		switch (resource) {
+		case "p2.index":
+			response.body = P2_INDEX.getBytes(StandardCharsets.UTF_8);
+			response.headers.put("Content-Type", "text/plain");
+			response.headers.put("ETag", getTag(response.body));
+			break;
+		case "content.xml":
+			response.body = snapshot.content;
+			response.headers.put("Content-Type", "application/xml");
+			response.headers.put("ETag", snapshot.contentTag);
+			break;
+		case "artifacts.xml":
+			response.body = snapshot.artifacts;
+			response.headers.put("Content-Type", "application/xml");
+			response.headers.put("ETag", snapshot.artifactsTag);
+			break;
+		default:
+			File file = snapshot.files.get(resource);
+			if (file == null)
+				return Response.error(404, "Not Found");
+			response.file = file.isDirectory() ? getDirectoryJar(snapshot,
+					resource) : file.toPath();
+			BasicFileAttributes attributes = Files.readAttributes(
+					response.file, BasicFileAttributes.class);
+			response.headers.put("Content-Type", "application/java-archive");
+			response.headers.put("ETag", "\""
+					+ Long.toHexString(attributes.size()) + "-"
+					+ Long.toHexString(attributes.lastModifiedTime().toMillis())
+					+ "\"");
+		}
+
+		String tag = response.headers.get("ETag");
+		String ifNoneMatch = request.headers.get("if-none-match");
+		if (ifNoneMatch != null
+				&& (ifNoneMatch.equals("*") || ifNoneMatch.contains(tag))) {
+			Response notModified = new Response(304, "Not Modified");
+			notModified.headers.put("ETag", tag);
+			return notModified;
+		}
+		return response;
+	}
+
+	private static void writeResponse(SocketChannel channel, Request request,
+			Response response) throws IOException {
+		try (FileChannel file = response.file != null ? FileChannel.open(
+				response.file, StandardOpenOption.READ) : null) {
+			long length = file != null ? file.size()
+					: response.body != null ? response.body.length : 0;
+
+			StringBuilder head = new StringBuilder();
+			head.append("HTTP/1.1 ").append(response.status).append(' ')
+					.append(response.reason).append("\r\n");
+			for (Map.Entry<String, String> header : response.headers
+					.entrySet())
+				head.append(header.getKey()).append(": ")
+						.append(header.getValue()).append("\r\n");
+			if (response.status != 304)
+				head.append("Content-Length: ").append(length).append("\r\n");
+			if (!request.keepAlive)
+				head.append("Connection: close\r\n");
+			head.append("\r\n");
+			writeFully(channel, ByteBuffer.wrap(head.toString().getBytes(
+					StandardCharsets.ISO_8859_1)));
+
+			if (request.method.equals("HEAD") || response.status == 304)
+				return;
+			if (file != null) {
+				for (long position = 0; position < length;) {
+					long n = file.transferTo(position, length - position,
+							channel);
+					// Nothing is transferred at end of file
+					if (n <= 0)
+						throw new IOException(response.file
+								+ " was truncated while being sent");
+					position += n;
+				}
+			} else if (response.body != null) {
+				writeFully(channel, ByteBuffer.wrap(response.body));
+			}
+		}
+	}
+
+	private static void writeFully(SocketChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * @return jar packed from directory artifact at given path, reusing jar
+	 *         packed before if the directory didn't change since
+	 */
+	private synchronized Path getDirectoryJar(Snapshot snapshot,
+			String resource) throws IOException {
+		IArtifactKey key = snapshot.keys.get(resource);
+		File dir = snapshot.files.get(resource);
+		Path jar = cacheDir.resolve(P2Utils.sha256(dir.getAbsolutePath()) + ".jar");
+		FileTime stamp = FileTime.fromMillis(getStampFile(dir).lastModified());
+		if (Files.isRegularFile(jar)
+				&& Files.getLastModifiedTime(jar).equals(stamp))
+			return jar;
+
+		Path tempFile = Files.createTempFile(cacheDir, "jar", ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tempFile)) {
+				snapshot.repository.getArtifact(snapshot.repository
+						.createArtifactDescriptor(key), out,
+						new NullProgressMonitor());
+			}
+			Files.setLastModifiedTime(tempFile, stamp);
+			Files.move(tempFile, jar, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		return jar;
+	}
+
+	private static File getStampFile(File dir) {
+		File stamp = new File(dir, "feature.xml");
+		return stamp.exists() ? stamp : new File(dir, "META-INF/MANIFEST.MF");
+	}
+
+	private static String getTag(byte[] content) {
+		return "\"" + P2Utils.toHex(P2Utils.newSha256().digest(content)) + "\"";
+	}
+
+	/**
+	 * Metadata generated from a location at some point in time.
+	 */
+	private static class Snapshot {
+		final String fingerprint;
+
+		final FedoraArtifactRepository repository;
+
+		// Artifact keys and files by their path in the served repository
+		final Map<String, IArtifactKey> keys = new HashMap<>();
+
+		final Map<String, File> files = new HashMap<>();
+
+		byte[] content;
+
+		String contentTag;
+
+		byte[] artifacts;
+
+		String artifactsTag;
+
+		Snapshot(String fingerprint, FedoraArtifactRepository repository) {
+			this.fingerprint = fingerprint;
+			this.repository = repository;
+		}
+	}
+
+	private class ServedRepository {
+		private final Path location;
+
+		private final URI uri;
+
+		private Snapshot snapshot;
+
+		private long lastCheck;
+
+		ServedRepository(Path location) {
+			this.location = location.toAbsolutePath();
+			try {
+				uri = new URI("fedora:" + this.location);
+			} catch (URISyntaxException e) {
+				throw new IllegalArgumentException(e);
+			}
+		}
+
+		synchronized Snapshot getSnapshot() throws IOException,
+				ProvisionException {
+			long now = System.currentTimeMillis();
+			if (snapshot != null && now - lastCheck < CHECK_INTERVAL)
+				return snapshot;
+			lastCheck = now;
+			String fingerprint = computeFingerprint();
+			if (snapshot == null || !snapshot.fingerprint.equals(fingerprint)) {
+				unload();
+				snapshot = createSnapshot(fingerprint);
+				logger.debug("Generated metadata of {}", location);
+			}
+			return snapshot;
+		}
+
+		/**
+		 * Compute fingerprint of the location from modification times of its
+		 * directories. Adding, removing or renaming a file changes
+		 * modification time of its parent directory.
+		 */
+		private String computeFingerprint() throws IOException {
+			StringBuilder sb = new StringBuilder();
+			Files.walkFileTree(location, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+					Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir,
+								BasicFileAttributes attrs) {
+							sb.append(dir).append(' ')
+									.append(attrs.lastModifiedTime().toMillis())
+									.append('\n');
+							return FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFileFailed(Path file,
+								IOException e) {
+							return FileVisitResult.CONTINUE;
+						}
+					});
+			return P2Utils.sha256(sb.toString());
+		}
+
+		private Snapshot createSnapshot(String fingerprint) throws IOException,
+				ProvisionException {
+			IMetadataRepository metadata = metadataManager.loadRepository(uri,
+					new NullProgressMonitor());
+			FedoraArtifactRepository artifacts = (FedoraArtifactRepository) artifactManager
+					.loadRepository(uri, new NullProgressMonitor());
+			Snapshot result = new Snapshot(fingerprint, artifacts);
+
+			RepositoryState state = new RepositoryState();
+			state.Name = "Fedora Repository " + location;
+			state.Type = LocalMetadataRepository.class.getName();
+			state.Version = Version.createOSGi(1, 0, 0);
+			state.Properties = Collections.singletonMap("p2.timestamp",
+					Long.toString(System.currentTimeMillis()));
+			state.Units = metadata.query(QueryUtil.createIUAnyQuery(), null)
+					.toArray(IInstallableUnit.class);
+			state.Repositories = new IRepositoryReference[0];
+			LocalMetadataRepository repository = new LocalMetadataRepository(
+					agent);
+			repository.initialize(state);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new MetadataRepositoryIO(agent).write(repository, out);
+			result.content = out.toByteArray();
+			result.contentTag = getTag(result.content);
+
+			StringBuilder xml = new StringBuilder();
+			xml.append("<?xml version='1.0' encoding='UTF-8'?>\n");
+			xml.append("<?artifactRepository version='1.1.0'?>\n");
+			xml.append("<repository name='").append(escape(state.Name))
+					.append("' type='org.eclipse.equinox.p2.artifact.repository.simpleRepository' version='1'>\n");
+			xml.append("  <mappings size='2'>\n");
+			xml.append("    <rule filter='(&amp; (classifier=osgi.bundle))' output='${repoUrl}/plugins/${id}_${version}.jar'/>\n");
+			xml.append("    <rule filter='(&amp; (classifier=org.eclipse.update.feature))' output='${repoUrl}/features/${id}_${version}.jar'/>\n");
+			xml.append("  </mappings>\n");
+			Map<String, IArtifactKey> keys = new LinkedHashMap<>();
+			for (IArtifactKey key : artifacts.query(ArtifactKeyQuery.ALL_KEYS,
+					null)) {
+				String dir = key.getClassifier().equals("osgi.bundle") ? "plugins"
+						: "features";
+				keys.put(dir + "/" + key.getId() + "_" + key.getVersion()
+						+ ".jar", key);
+			}
+			xml.append("  <artifacts size='").append(keys.size())
+					.append("'>\n");
+			for (Map.Entry<String, IArtifactKey> entry : keys.entrySet()) {
+				IArtifactKey key = entry.getValue();
+				File file = artifacts.getArtifactFile(key);
+				result.keys.put(entry.getKey(), key);
+				result.files.put(entry.getKey(), file);
+				xml.append("    <artifact classifier='")
+						.append(escape(key.getClassifier())).append("' id='")
+						.append(escape(key.getId())).append("' version='")
+						.append(escape(key.getVersion().toString()))
+						.append("'");
+				if (file.isDirectory()) {
+					xml.append("/>\n");
+					continue;
+				}
+				xml.append(">\n      <properties size='2'>\n");
+				xml.append("        <property name='artifact.size' value='")
+						.append(file.length()).append("'/>\n");
+				xml.append("        <property name='download.size' value='")
+						.append(file.length()).append("'/>\n");
+				xml.append("      </properties>\n    </artifact>\n");
+			}
+			xml.append("  </artifacts>\n</repository>\n");
+			result.artifacts = xml.toString().getBytes(StandardCharsets.UTF_8);
+			result.artifactsTag = getTag(result.artifacts);
+			return result;
+		}
+
+		void unload() {
+			metadataManager.removeRepository(uri);
+			artifactManager.removeRepository(uri);
+		}
+	}
+
+	private static String escape(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;")
+				.replace(">", "&gt;").replace("'", "&apos;")
+				.replace("\"", "&quot;");
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.osgi.framework.BundleContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Set of jar files known not to be OSGi bundles, so that they don't need to
+ * be opened again on subsequent scans. Files are identified by their file
+ * key (device and inode), size and modification time, so a replaced file is
+ * examined again.
+ * <p>
+ * The set is shared by all indices and persisted in data area of this
+ * bundle, if there is one. Entries are kept by location they were found in,
+ * so that entries of jars no longer present in a location can be removed
+ * after it is scanned.
+ */
+class NonBundleCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(NonBundleCache.class);
+
+	private static final String FILE_NAME = "non-bundles.txt";
+
+	private static NonBundleCache instance;
+
+	private final Path file;
+
+	// Entries by absolute path of location
+	private final Map<String, Set<String>> entries = new HashMap<>();
+
+	private boolean modified;
+
+	NonBundleCache(Path file) {
+		this.file = file;
+		if (file != null && Files.isRegularFile(file)) {
+			try {
+				for (String line : Files.readAllLines(file,
+						StandardCharsets.UTF_8)) {
+					// Entry followed by location, which may contain spaces
+					String[] fields = line.split(" ", 4);
+					if (fields.length == 4)
+						getEntries(fields[3]).add(fields[0] + " " + fields[1]
+								+ " " + fields[2]);
+				}
+			} catch (IOException e) {
+				logger.warn("Unable to read non-bundle cache {}", file, e);
+			}
+		}
+	}
+
+	public static synchronized NonBundleCache getInstance() {
+		if (instance == null) {
+			BundleContext context = Activator.getContext();
+			File dataFile = context != null ? context.getDataFile(FILE_NAME)
+					: null;
+			instance = new NonBundleCache(dataFile != null ? dataFile.toPath()
+					: null);
+		}
+		return instance;
+	}
+
+	private Set<String> getEntries(String location) {
+		return entries.computeIfAbsent(location, l -> new HashSet<>());
+	}
+
+	/**
+	 * @return entry identifying given file, or {@code null} if it can't be
+	 *         identified
+	 */
+	static String getEntry(BasicFileAttributes attributes) {
+		if (attributes == null || attributes.fileKey() == null)
+			return null;
+		return attributes.fileKey() + " " + attributes.size() + " "
+				+ attributes.lastModifiedTime().toMillis();
+	}
+
+	public synchronized boolean contains(File location, String entry) {
+		Set<String> locationEntries = entries.get(location.getAbsolutePath());
+		return entry != null && locationEntries != null
+				&& locationEntries.contains(entry);
+	}
+
+	public synchronized void add(File location, String entry) {
+		if (getEntries(location.getAbsolutePath()).add(entry))
+			modified = true;
+	}
+
+	/**
+	 * Remove entries of given location other than given ones, which were seen
+	 * during full scan of the location.
+	 */
+	public synchronized void retain(File location, Set<String> seen) {
+		Set<String> locationEntries = entries.get(location.getAbsolutePath());
+		if (locationEntries != null && locationEntries.retainAll(seen))
+			modified = true;
+		if (locationEntries != null && locationEntries.isEmpty())
+			entries.remove(location.getAbsolutePath());
+	}
+
+	/**
+	 * Persist entries if they were added or removed since the cache was loaded
+	 * or last saved.
+	 */
+	public synchronized void save() {
+		if (!modified || file == null)
+			return;
+		try {
+			Files.createDirectories(file.getParent());
+			Path tempFile = Files.createTempFile(file.getParent(), FILE_NAME,
+					".tmp");
+			List<String> lines = new ArrayList<>();
+			for (Map.Entry<String, Set<String>> location : entries.entrySet()) {
+				for (String entry : location.getValue())
+					lines.add(entry + " " + location.getKey());
+			}
+			Files.write(tempFile, lines, StandardCharsets.UTF_8);
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			modified = false;
+		} catch (IOException e) {
+			logger.warn("Unable to write non-bundle cache {}", file, e);
+		}
+	}
+}
@@ -11,8 +11,14 @@
 package org.fedoraproject.p2;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -36,6 +42,10 @@ public class P2Utils {
 
 	private static IProvisioningAgent agent;
 
+	private static final boolean JFR_AVAILABLE = detectJfr();
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
 	public static synchronized IProvisioningAgent getAgent() throws ProvisionException {
 		if (agent != null)
 			return agent;
@@ -137,4 +147,73 @@ public class P2Utils {
 		}
 		root.delete();
 	}
+
+	/**
+	 * Atomically rename directory written in a temporary location into cache
+	 * shared with concurrent processes.
+	 *
+	 * @return {@code true} if the directory was renamed, {@code false} if the
+	 *         target directory already exists, for example because another
+	 *         process has created it in the meantime; source is left in place
+	 *         in that case
+	 */
+	public static boolean renameDirectory(Path source, Path target)
+			throws IOException {
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException e) {
+			// Renaming onto an existing non-empty directory fails with plain
+			// FileSystemException on Linux, not FileAlreadyExistsException
+			if (Files.isDirectory(target))
+				return false;
+			throw e;
+		}
+	}
+
+	/**
+	 * Create SHA-256 digest, used for keys of caches and other content
+	 * addressed files.
+	 */
+	public static MessageDigest newSha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform is required to support SHA-256
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return hex-encoded SHA-256 hash of UTF-8 encoding of given string
+	 */
+	public static String sha256(String value) {
+		return toHex(newSha256().digest(value.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	public static String toHex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+			hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	private static boolean detectJfr() {
+		try {
+			Class.forName("jdk.jfr.Event", false, P2Utils.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Whether JFR events can be emitted. Classes defining JFR events may be
+	 * loaded only if this returns true.
+	 */
+	public static boolean isJfrAvailable() {
+		return JFR_AVAILABLE;
+	}
 }
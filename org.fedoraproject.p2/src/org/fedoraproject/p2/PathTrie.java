@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A set of directories stored as a trie of path components. Checking whether
+ * a path lies under any of the directories takes time proportional to depth
+ * of the path, regardless of number of directories.
+ * <p>
+ * All paths added and looked up are expected to be absolute and normalized.
+ */
+class PathTrie {
+	private static class Node {
+		private final Map<Path, Node> children = new HashMap<>();
+
+		private boolean terminal;
+	}
+
+	private final Node root = new Node();
+
+	public void add(Path dir) {
+		Node node = root;
+		for (Path name : dir) {
+			node = node.children.computeIfAbsent(name, k -> new Node());
+		}
+		node.terminal = true;
+	}
+
+	/**
+	 * @return {@code true} iff given path is one of the directories in this
+	 *         trie or lies under one of them
+	 */
+	public boolean containsPrefixOf(Path path) {
+		Node node = root;
+		if (node.terminal)
+			return true;
+		for (Path name : path) {
+			node = node.children.get(name);
+			if (node == null)
+				return false;
+			if (node.terminal)
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.publisher.eclipse.BundlesAction;
+import org.eclipse.equinox.p2.publisher.eclipse.FeaturesAction;
+import org.eclipse.osgi.framework.util.CaseInsensitiveDictionaryMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of a bundle location generated ahead of time by
+ * {@link BundleIndexGenerator}. Besides location and key of every bundle and
+ * feature it holds headers of bundle manifests, so that installable units
+ * can be created without opening any jar.
+ * <p>
+ * Index files are memory-mapped, so all processes reading index of the same
+ * location share the same page cache. An index is used only while it is
+ * fresh - modification times of all directories walked while generating it
+ * and of all indexed jars, manifests and feature.xml files are recorded and
+ * compared when it is read. Adding, removing or renaming a file changes
+ * modification time of its parent directory.
+ */
+class PrebuiltBundleIndex {
+	private static final Logger logger = LoggerFactory
+			.getLogger(PrebuiltBundleIndex.class);
+
+	private static final String DEFAULT_DIRECTORY = "/var/cache/fedora-p2/index";
+
+	private static final int MAGIC = 0x46503249;
+
+	private static final int FORMAT = 1;
+
+	private static final byte BUNDLE = 0;
+
+	private static final byte BUNDLE_DIR = 1;
+
+	private static final byte FEATURE = 2;
+
+	static class IndexEntry {
+		final File file;
+
+		final IArtifactKey key;
+
+		final boolean feature;
+
+		final Dictionary<String, String> manifest;
+
+		IndexEntry(File file, IArtifactKey key, boolean feature,
+				Dictionary<String, String> manifest) {
+			this.file = file;
+			this.key = key;
+			this.feature = feature;
+			this.manifest = manifest;
+		}
+	}
+
+	private PrebuiltBundleIndex() {
+	}
+
+	/**
+	 * @return file holding prebuilt index of given location, or {@code null}
+	 *         if prebuilt indices are disabled
+	 */
+	static Path getFile(File root) {
+		String dir = System.getProperty(FedoraBundleIndex.INDEX_DIR_PROPERTY,
+				DEFAULT_DIRECTORY);
+		if (dir.isEmpty())
+			return null;
+
+		return Paths.get(dir).resolve(
+				P2Utils.sha256(root.getAbsolutePath()) + ".idx");
+	}
+
+	private static File getStampFile(File file, byte type) {
+		switch (type) {
+		case BUNDLE_DIR:
+			return new File(file, "META-INF/MANIFEST.MF");
+		case FEATURE:
+			return new File(file, "feature.xml");
+		default:
+			return file;
+		}
+	}
+
+	private static long getModificationTime(File file) {
+		try {
+			return Files.getLastModifiedTime(file.toPath()).to(
+					TimeUnit.NANOSECONDS);
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	private static String relativize(File root, File file) {
+		return root.toPath().relativize(file.toPath()).toString();
+	}
+
+	private static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length == -1)
+			return null;
+		if (length < 0 || length > buffer.remaining())
+			throw new IllegalArgumentException("Invalid string length "
+					+ length);
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read number of elements, each of which takes at least one byte.
+	 */
+	private static int readCount(ByteBuffer buffer) {
+		int count = buffer.getInt();
+		if (count < 0 || count > buffer.remaining())
+			throw new IllegalArgumentException("Invalid element count " + count);
+		return count;
+	}
+
+	/**
+	 * Write index of given location. The file is replaced atomically, so
+	 * concurrent readers see either the old or the new index.
+	 *
+	 * @param excludes
+	 *            exclude patterns of the location the index was generated
+	 *            with
+	 * @param directories
+	 *            all directories walked while scanning the location
+	 * @param descriptors
+	 *            parsed manifests of indexed bundles
+	 */
+	static void write(Path file, File root, String excludes,
+			Collection<File> directories, Map<IArtifactKey, File> index,
+			Map<File, Object> descriptors) throws IOException {
+		Files.createDirectories(file.getParent());
+		Path tempFile = Files.createTempFile(file.getParent(), file
+				.getFileName().toString(), ".tmp");
+		try {
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT);
+				writeString(out, root.getAbsolutePath());
+				writeString(out, excludes);
+
+				out.writeInt(directories.size());
+				for (File dir : directories) {
+					writeString(out, relativize(root, dir));
+					out.writeLong(getModificationTime(dir));
+				}
+
+				out.writeInt(index.size());
+				for (Entry<IArtifactKey, File> e : index.entrySet()) {
+					IArtifactKey key = e.getKey();
+					File bundle = e.getValue();
+					Object descriptor = descriptors.get(bundle);
+					byte type = descriptor instanceof Dictionary ? bundle
+							.isDirectory() ? BUNDLE_DIR : BUNDLE : FEATURE;
+					File stamp = getStampFile(bundle, type);
+					out.writeByte(type);
+					writeString(out, relativize(root, bundle));
+					out.writeLong(stamp.length());
+					out.writeLong(getModificationTime(stamp));
+					writeString(out, key.getId());
+					writeString(out, key.getVersion().toString());
+					if (type == FEATURE) {
+						out.writeInt(0);
+						continue;
+					}
+					@SuppressWarnings("unchecked")
+					Dictionary<String, String> manifest = (Dictionary<String, String>) descriptor;
+					out.writeInt(manifest.size());
+					for (Enumeration<String> headers = manifest.keys(); headers
+							.hasMoreElements();) {
+						String header = headers.nextElement();
+						writeString(out, header);
+						writeString(out, manifest.get(header));
+					}
+				}
+			}
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Read index of given location.
+	 *
+	 * @param excludes
+	 *            current exclude patterns of the location
+	 * @param withManifests
+	 *            whether manifest headers should be read
+	 * @return entries of the index, or {@code null} if there is no usable
+	 *         index because it doesn't exist, is stale or is corrupted
+	 */
+	static List<IndexEntry> read(Path file, File root, String excludes,
+			boolean withManifests) {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			logger.warn("Unable to read prebuilt bundle index {}", file, e);
+			return null;
+		}
+
+		try {
+			if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT
+					|| !root.getAbsolutePath().equals(readString(buffer))
+					|| !Objects.equals(excludes, readString(buffer))) {
+				logger.debug("Prebuilt bundle index {} does not match {}",
+						file, root);
+				return null;
+			}
+
+			int directories = readCount(buffer);
+			for (int i = 0; i < directories; i++) {
+				File dir = new File(root, readString(buffer));
+				if (getModificationTime(dir) != buffer.getLong()) {
+					logger.debug("Prebuilt bundle index of {} is stale", root);
+					return null;
+				}
+			}
+
+			int size = readCount(buffer);
+			List<IndexEntry> entries = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				byte type = buffer.get();
+				File bundle = new File(root, readString(buffer));
+				File stamp = getStampFile(bundle, type);
+				if (stamp.length() != buffer.getLong()
+						|| getModificationTime(stamp) != buffer.getLong()) {
+					logger.debug("Prebuilt bundle index of {} is stale", root);
+					return null;
+				}
+				String id = readString(buffer);
+				String version = readString(buffer);
+				IArtifactKey key = type == FEATURE ? FeaturesAction
+						.createFeatureArtifactKey(id, version) : BundlesAction
+						.createBundleArtifactKey(id, version);
+
+				int headers = readCount(buffer);
+				CaseInsensitiveDictionaryMap<String, String> manifest = withManifests
+						&& type != FEATURE ? new CaseInsensitiveDictionaryMap<>(
+						headers) : null;
+				for (int j = 0; j < headers; j++) {
+					String header = readString(buffer);
+					String value = readString(buffer);
+					if (manifest != null)
+						manifest.put(header, value);
+				}
+				entries.add(new IndexEntry(bundle, key, type == FEATURE,
+						manifest));
+			}
+			return entries;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			logger.warn("Prebuilt bundle index {} is corrupted", file, e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.io.File;
+import java.net.URI;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR events emitted by Fedora repositories. This class must be loaded only
+ * after {@link P2Utils#isJfrAvailable()} returned true, therefore events are
+ * passed around as plain objects.
+ */
+final class RepositoryEvents {
+	private RepositoryEvents() {
+	}
+
+	@Name("org.fedoraproject.p2.RepositoryLoad")
+	@Label("Repository Load")
+	@Category({ "Fedora P2", "Repository" })
+	static class RepositoryLoadEvent extends Event {
+		@Label("Location")
+		String location;
+
+		@Label("Repository Type")
+		String type;
+
+		@Label("Found")
+		boolean found;
+	}
+
+	@Name("org.fedoraproject.p2.IndexScan")
+	@Label("Bundle Index Scan")
+	@Category({ "Fedora P2", "Repository" })
+	static class IndexScanEvent extends Event {
+		@Label("Root")
+		String root;
+
+		@Label("Artifacts")
+		int artifacts;
+	}
+
+	@Name("org.fedoraproject.p2.ManifestParse")
+	@Label("Manifest Parse")
+	@Category({ "Fedora P2", "Repository" })
+	static class ManifestParseEvent extends Event {
+		@Label("Path")
+		String path;
+
+		@Label("Kind")
+		String kind;
+	}
+
+	@Name("org.fedoraproject.p2.UnitCreation")
+	@Label("Installable Unit Creation")
+	@Category({ "Fedora P2", "Repository" })
+	static class UnitCreationEvent extends Event {
+		@Label("Location")
+		String location;
+
+		@Label("Kind")
+		String kind;
+
+		@Label("Units")
+		int units;
+	}
+
+	@Name("org.fedoraproject.p2.ArtifactTransfer")
+	@Label("Artifact Transfer")
+	@Category({ "Fedora P2", "Repository" })
+	static class ArtifactTransferEvent extends Event {
+		@Label("Artifact")
+		String artifact;
+
+		@Label("Path")
+		String path;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("org.fedoraproject.p2.JarCreation")
+	@Label("Jar Creation From Directory")
+	@Category({ "Fedora P2", "Repository" })
+	static class JarCreationEvent extends Event {
+		@Label("Directory")
+		String directory;
+
+		@Label("Files")
+		int files;
+	}
+
+	static Object beginRepositoryLoad(URI location, String type) {
+		RepositoryLoadEvent event = new RepositoryLoadEvent();
+		event.begin();
+		event.location = location.toString();
+		event.type = type;
+		return event;
+	}
+
+	static void endRepositoryLoad(Object e, boolean found) {
+		RepositoryLoadEvent event = (RepositoryLoadEvent) e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.found = found;
+			event.commit();
+		}
+	}
+
+	static Object beginIndexScan(File root) {
+		IndexScanEvent event = new IndexScanEvent();
+		event.begin();
+		event.root = root.getPath();
+		return event;
+	}
+
+	static void endIndexScan(Object e, int artifacts) {
+		IndexScanEvent event = (IndexScanEvent) e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.artifacts = artifacts;
+			event.commit();
+		}
+	}
+
+	static Object beginManifestParse(File file, String kind) {
+		ManifestParseEvent event = new ManifestParseEvent();
+		event.begin();
+		event.path = file.getPath();
+		event.kind = kind;
+		return event;
+	}
+
+	static void endManifestParse(Object e) {
+		ManifestParseEvent event = (ManifestParseEvent) e;
+		event.end();
+		if (event.shouldCommit())
+			event.commit();
+	}
+
+	static Object beginUnitCreation(URI location, String kind) {
+		UnitCreationEvent event = new UnitCreationEvent();
+		event.begin();
+		event.location = location.toString();
+		event.kind = kind;
+		return event;
+	}
+
+	static void endUnitCreation(Object e, int units) {
+		UnitCreationEvent event = (UnitCreationEvent) e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.units = units;
+			event.commit();
+		}
+	}
+
+	static Object beginArtifactTransfer(Object artifact, File file) {
+		ArtifactTransferEvent event = new ArtifactTransferEvent();
+		event.begin();
+		event.artifact = artifact.toString();
+		event.path = file.getPath();
+		return event;
+	}
+
+	static void endArtifactTransfer(Object e, long bytes) {
+		ArtifactTransferEvent event = (ArtifactTransferEvent) e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	static Object beginJarCreation(File directory) {
+		JarCreationEvent event = new JarCreationEvent();
+		event.begin();
+		event.directory = directory.getPath();
+		return event;
+	}
+
+	static void endJarCreation(Object e, int files) {
+		JarCreationEvent event = (JarCreationEvent) e;
+		event.end();
+		if (event.shouldCommit()) {
+			event.files = files;
+			event.commit();
+		}
+	}
+}
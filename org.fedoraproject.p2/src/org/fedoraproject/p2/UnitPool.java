@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.Collection;
+
+import org.eclipse.equinox.internal.p2.metadata.InstallableUnit;
+import org.eclipse.equinox.p2.core.IPool;
+import org.eclipse.equinox.p2.core.StrongPool;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.p2.metadata.IRequirement;
+
+/**
+ * Makes installable units share equal provided capabilities and
+ * requirements. Units created from a directory of bundles repeat the same
+ * package imports, version ranges and bundle type capabilities many times.
+ */
+class UnitPool {
+	private final IPool<IProvidedCapability> capabilities = new StrongPool<>();
+
+	private final IPool<IRequirement> requirements = new StrongPool<>();
+
+	public void compress(IInstallableUnit unit) {
+		if (!(unit instanceof InstallableUnit))
+			return;
+		InstallableUnit iu = (InstallableUnit) unit;
+		if (!iu.getProvidedCapabilities().isEmpty())
+			iu.setCapabilities(pool(capabilities,
+					iu.getProvidedCapabilities(), new IProvidedCapability[0]));
+		if (!iu.getRequirements().isEmpty())
+			iu.setRequiredCapabilities(pool(requirements,
+					iu.getRequirements(), new IRequirement[0]));
+		if (!iu.getMetaRequirements().isEmpty())
+			iu.setMetaRequiredCapabilities(pool(requirements,
+					iu.getMetaRequirements(), new IRequirement[0]));
+	}
+
+	private static <T> T[] pool(IPool<T> pool, Collection<T> objects, T[] type) {
+		T[] result = objects.toArray(type);
+		for (int i = 0; i < result.length; i++)
+			result[i] = pool.add(result[i]);
+		return result;
+	}
+}
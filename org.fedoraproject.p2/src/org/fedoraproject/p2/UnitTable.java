@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+
+/**
+ * Ordered table of installable units. Sets of units are represented as
+ * bitsets over table indices, so that set operations don't need to hash or
+ * copy units.
+ * <p>
+ * Equal units are stored only once - the unit which was added first
+ * represents all units equal to it.
+ */
+class UnitTable {
+	private final List<IInstallableUnit> units = new ArrayList<>();
+
+	private final Map<IInstallableUnit, Integer> indices = new HashMap<>();
+
+	/**
+	 * @return index of given unit, or of unit equal to it if there was one
+	 *         already
+	 */
+	public int add(IInstallableUnit unit) {
+		Integer index = indices.get(unit);
+		if (index == null) {
+			index = units.size();
+			units.add(unit);
+			indices.put(unit, index);
+		}
+		return index;
+	}
+
+	/**
+	 * @return set of indices of given units
+	 */
+	public BitSet addAll(Iterable<IInstallableUnit> units) {
+		BitSet bits = new BitSet();
+		for (IInstallableUnit unit : units)
+			bits.set(add(unit));
+		return bits;
+	}
+
+	public IInstallableUnit get(int index) {
+		return units.get(index);
+	}
+
+	/**
+	 * @return immutable set of units with given indices
+	 */
+	public Set<IInstallableUnit> view(BitSet bits) {
+		return new View((BitSet) bits.clone());
+	}
+
+	private class View extends AbstractSet<IInstallableUnit> {
+		private final BitSet bits;
+
+		private final int size;
+
+		public View(BitSet bits) {
+			this.bits = bits;
+			this.size = bits.cardinality();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			Integer index = indices.get(o);
+			return index != null && bits.get(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Iterator<IInstallableUnit> iterator() {
+			return new Iterator<IInstallableUnit>() {
+				private int next = bits.nextSetBit(0);
+
+				@Override
+				public boolean hasNext() {
+					return next >= 0;
+				}
+
+				@Override
+				public IInstallableUnit next() {
+					if (next < 0)
+						throw new NoSuchElementException();
+					IInstallableUnit unit = units.get(next);
+					next = bits.nextSetBit(next + 1);
+					return unit;
+				}
+			};
+		}
+	}
+}
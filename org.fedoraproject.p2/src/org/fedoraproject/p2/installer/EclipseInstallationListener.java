@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer;
+
+/**
+ * Receives installation progress while installation is still running.
+ */
+public interface EclipseInstallationListener {
+	/**
+	 * Called as soon as a dropin has been installed into build root, or
+	 * resolved in case of dry run. Dropins may be installed concurrently, so
+	 * this method can be called from different threads.
+	 *
+	 * @param dropin
+	 *            installed dropin, together with all its provides
+	 * @param duration
+	 *            time in milliseconds it took to install the dropin
+	 */
+	void dropinInstalled(Dropin dropin, long duration);
+}
@@ -31,6 +31,12 @@ public class EclipseInstallationRequest {
 
 	private boolean ignoreOptional = false;
 
+	private Path cacheDirectory;
+
+	private EclipseInstallationListener listener;
+
+	private Path metricsReport;
+
 	public Path getBuildRoot() {
 		return buildRoot;
 	}
@@ -70,4 +76,32 @@ public class EclipseInstallationRequest {
 	public boolean ignoreOptional() {
 		return ignoreOptional;
 	}
+
+	public Path getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	public void setCacheDirectory(Path cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	public EclipseInstallationListener getListener() {
+		return listener;
+	}
+
+	public void setListener(EclipseInstallationListener listener) {
+		this.listener = listener;
+	}
+
+	public Path getMetricsReport() {
+		return metricsReport;
+	}
+
+	/**
+	 * Write timing of installation phases and other metrics as JSON report
+	 * into given file.
+	 */
+	public void setMetricsReport(Path metricsReport) {
+		this.metricsReport = metricsReport;
+	}
 }
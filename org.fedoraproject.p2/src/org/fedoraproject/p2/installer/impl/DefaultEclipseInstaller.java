@@ -10,7 +10,7 @@
  *******************************************************************************/
 package org.fedoraproject.p2.installer.impl;
 
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -25,6 +25,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -47,6 +51,7 @@ import org.fedoraproject.p2.P2Utils;
 import org.fedoraproject.p2.SCL;
 import org.fedoraproject.p2.installer.Dropin;
 import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationListener;
 import org.fedoraproject.p2.installer.EclipseInstallationRequest;
 import org.fedoraproject.p2.installer.EclipseInstallationResult;
 import org.fedoraproject.p2.installer.EclipseInstaller;
@@ -72,184 +77,304 @@ public class DefaultEclipseInstaller implements EclipseInstaller {
 
 	private IFedoraBundleRepository index;
 
+	// Fingerprint of system layout the index was built from, index is reused
+	// by subsequent installations for as long as it stays the same
+	private String indexFingerprint;
+
 	private boolean ignoreOptional;
 
 	private Set<IInstallableUnit> unitCache;
 
+	private InstallerMetrics metrics;
+
 	@Override
 	public EclipseInstallationResult performInstallation(
 			EclipseInstallationRequest request) throws Exception {
+		metrics = new InstallerMetrics();
+		InstallerMetrics.Phase total = metrics.phase("total");
+
 		logger.info("Creating reactor repository...");
-		Repository reactorRepo = Repository.createTemp();
-		Set<Path> plugins = new LinkedHashSet<>();
-		Set<Path> features = new LinkedHashSet<>();
-		Map<Path, EclipseArtifact> reactorMap = new LinkedHashMap<>();
-		for (EclipseArtifact artifact : request.getArtifacts()) {
-			Path path = artifact.getPath();
-			reactorMap.put(path, artifact);
-			if (artifact.isFeature())
-				features.add(path);
+		InstallerMetrics.Phase phase = metrics.phase("publish");
+		Repository reactorRepo = null;
+		try {
+			reactorRepo = Repository.createTemp();
+			Set<Path> plugins = new LinkedHashSet<>();
+			Set<Path> features = new LinkedHashSet<>();
+			Map<Path, EclipseArtifact> reactorMap = new LinkedHashMap<>();
+			for (EclipseArtifact artifact : request.getArtifacts()) {
+				Path path = artifact.getPath();
+				reactorMap.put(path, artifact);
+				if (artifact.isFeature())
+					features.add(path);
+				else
+					plugins.add(path);
+			}
+			if (request.getCacheDirectory() != null)
+				new PublisherCache(request.getCacheDirectory(), metrics).publish(
+						reactorRepo, plugins, features);
 			else
-				plugins.add(path);
-		}
-		Director.publish(reactorRepo, plugins, features);
-		reactor = reactorRepo.getAllUnits();
-		// Remove all host localization fragments
-		reactor.removeAll(reactor.stream()
-                .filter(u -> u.getId().endsWith("translated_host_properties"))
-                .collect(Collectors.toSet()));
-		Set<Path> reactorPaths = reactor.stream().map(P2Utils::getPath).collect(Collectors.toSet());
-		request.getArtifacts().stream().filter(a -> !reactorPaths.contains(a.getPath()))
-				.forEach(a -> logger.error("Not a valid {}: {}", a.isFeature() ? "feature" : "plugin", a.getPath()));
-		if (reactor.stream().collect(Collectors.summingInt(u -> u.getArtifacts().size()))
-				!= plugins.size() + features.size()) {
-			throw new RuntimeException("Reactor contains invalid plugin or feature");
-		}
-
-		ignoreOptional = request.ignoreOptional();
-
-		logger.info("Indexing system bundles and features...");
-		List<Path> sclConfs = request.getConfigFiles();
-		if (sclConfs.isEmpty())
-			sclConfs = EclipseSystemLayout.getSclConfFiles();
-		List<SCL> scls = sclConfs.stream().map(SCL::new).collect(Collectors.toList());
-		index = new CompoundBundleRepository(scls);
-
-		SCL currentScl = scls.iterator().next();
-		String namespace = currentScl.getSclName();
-
-		P2Utils.dump("Platform units", index.getPlatformUnits());
-		P2Utils.dump("Internal units", index.getInternalUnits());
-		P2Utils.dump("External units", index.getExternalUnits());
-		P2Utils.dump("Reactor contents", reactor);
-
-		Map<String, Set<IInstallableUnit>> packages = new LinkedHashMap<>();
-
-		for (IInstallableUnit unit : reactor) {
-			Path path = P2Utils.getPath(unit);
-			EclipseArtifact provide = reactorMap.get(path);
-			if (provide == null) {
-				logger.debug("Skipped unit {}: provide is null", unit);
-				continue;
+				Director.publish(reactorRepo, plugins, features);
+			reactor = reactorRepo.getAllUnits();
+			// Remove all host localization fragments
+			reactor.removeAll(reactor.stream()
+	                .filter(u -> u.getId().endsWith("translated_host_properties"))
+	                .collect(Collectors.toSet()));
+			Set<Path> reactorPaths = reactor.stream().map(P2Utils::getPath).collect(Collectors.toSet());
+			request.getArtifacts().stream().filter(a -> !reactorPaths.contains(a.getPath()))
+					.forEach(a -> logger.error("Not a valid {}: {}", a.isFeature() ? "feature" : "plugin", a.getPath()));
+			if (reactor.stream().collect(Collectors.summingInt(u -> u.getArtifacts().size()))
+					!= plugins.size() + features.size()) {
+				throw new RuntimeException("Reactor contains invalid plugin or feature");
 			}
-			String packageId = provide.getTargetPackage();
-			if (packageId == null)
-				continue;
-
-			Set<IInstallableUnit> pkg = packages.get(packageId);
-			if (pkg == null) {
-				pkg = new LinkedHashSet<>();
-				packages.put(packageId, pkg);
+			metrics.add("reactor.units", reactor.size());
+			phase.close();
+
+			ignoreOptional = request.ignoreOptional();
+
+			List<Path> sclConfs = request.getConfigFiles();
+			if (sclConfs.isEmpty())
+				sclConfs = EclipseSystemLayout.getSclConfFiles();
+			List<SCL> scls = sclConfs.stream().map(SCL::new).collect(Collectors.toList());
+			phase = metrics.phase("index");
+			// Fingerprinting walks all SCL locations, so it is done only if there
+			// is an index which could be reused
+			String fingerprint = index != null
+					|| request.getCacheDirectory() != null ? SystemRepositoryCache
+					.computeFingerprint(sclConfs) : null;
+			if (index != null && fingerprint.equals(indexFingerprint)) {
+				logger.info("Reusing index of system bundles and features");
+				metrics.increment("systemIndex.reused");
+			} else {
+				logger.info("Indexing system bundles and features...");
+				if (request.getCacheDirectory() != null)
+					index = new SystemRepositoryCache(request.getCacheDirectory(),
+							metrics).getRepository(sclConfs, fingerprint);
+				else
+					index = new CompoundBundleRepository(scls);
+				indexFingerprint = fingerprint;
 			}
-			pkg.add(unit);
-		}
-
-		createMetapackages(packages);
-		resolveDeps();
-		Package.detectStrongComponents(metapackages);
-		Package.splitSplittable(metapackages);
-		Package.expandVirtualPackages(metapackages, request.getMainPackageId());
-
-		Set<Dropin> dropins = new LinkedHashSet<>();
-
-		for (Package metapkg : metapackages) {
-			for (Entry<String, Set<IInstallableUnit>> entry : metapkg
-					.getPackageMap().entrySet()) {
-				String name = entry.getKey();
-				Set<IInstallableUnit> content = entry.getValue();
-
-				// Find if any IUs in this package use or contain native components
-				boolean archfulDropin = false;
-				for (IInstallableUnit unit : content) {
-					EclipseArtifact provide = reactorMap.get(P2Utils.getPath(unit));
-					if (provide != null && provide.isNative()) {
-						archfulDropin = true;
-					}
-				}
-
-				// Determine the dropins directory to use
-				Path dropinDir;
-				if (name.endsWith("-tests")) {
-					dropinDir = currentScl.getTestBundleDir();
-				} else {
-					if (archfulDropin) {
-						dropinDir = currentScl.getArchDropletDir();
-					} else {
-						dropinDir = currentScl.getNoarchDropletDir();
-					}
+			metrics.add("system.units.platform", index.getPlatformUnits().size());
+			metrics.add("system.units.internal", index.getInternalUnits().size());
+			metrics.add("system.units.external", index.getExternalUnits().size());
+			phase.close();
+
+			SCL currentScl = scls.iterator().next();
+			String namespace = currentScl.getSclName();
+
+			P2Utils.dump("Platform units", index.getPlatformUnits());
+			P2Utils.dump("Internal units", index.getInternalUnits());
+			P2Utils.dump("External units", index.getExternalUnits());
+			P2Utils.dump("Reactor contents", reactor);
+
+			Map<String, Set<IInstallableUnit>> packages = new LinkedHashMap<>();
+
+			for (IInstallableUnit unit : reactor) {
+				Path path = P2Utils.getPath(unit);
+				EclipseArtifact provide = reactorMap.get(path);
+				if (provide == null) {
+					logger.debug("Skipped unit {}: provide is null", unit);
+					continue;
 				}
-				if (dropinDir == null)
-					throw new RuntimeException(
-							"Current SCL is not capable of holding Eclipse plugins.");
-				dropinDir = Paths.get("/").relativize(dropinDir);
-
-				logger.info("Creating {} dropin {}...", archfulDropin ? "archful" : "noarch", name);
-				Dropin dropin = new Dropin(name, dropinDir.resolve(name));
-				dropins.add(dropin);
-
-				P2Utils.dump("Metapackage contents", content);
-				Set<IInstallableUnit> symlinks = new LinkedHashSet<>();
-				symlinks.addAll(content);
-				content.retainAll(reactor);
-				symlinks.removeAll(content);
-				P2Utils.dump("Dropin physical units", content);
-				P2Utils.dump("Dropin symlinks", symlinks);
-
-				Path installationPath = dropin.getPath();
-				if (request.getBuildRoot() != null) {
-					Repository dropinRepo = Repository.createTemp();
-					Set<Path> dropinPaths = new LinkedHashSet<> (plugins);
-					dropinPaths.addAll(
-							symlinks.stream().map(P2Utils::getPath)
-									.collect(Collectors.toSet()));
-					Director.publish(dropinRepo, dropinPaths, features);
-					createRunnableRepository(dropinRepo, request
-							.getBuildRoot().resolve(installationPath), content, symlinks);
+				String packageId = provide.getTargetPackage();
+				if (packageId == null)
+					continue;
+
+				Set<IInstallableUnit> pkg = packages.get(packageId);
+				if (pkg == null) {
+					pkg = new LinkedHashSet<>();
+					packages.put(packageId, pkg);
 				}
+				pkg.add(unit);
+			}
+
+			phase = metrics.phase("resolve");
+			createMetapackages(packages);
+			resolveDeps();
+			phase.close();
+			phase = metrics.phase("scc");
+			Package.detectStrongComponents(metapackages);
+			phase.close();
+			phase = metrics.phase("split");
+			Package.splitSplittable(metapackages);
+			phase.close();
+			phase = metrics.phase("expand");
+			Package.expandVirtualPackages(metapackages, request.getMainPackageId());
+			phase.close();
+
+			Set<Dropin> dropins = new LinkedHashSet<>();
+			EclipseInstallationListener listener = request.getListener();
+
+			// Dropins are written to disjoint directories, so they can be
+			// materialized concurrently while provides are computed here
+			ExecutorService executor = null;
+			List<Future<?>> materializations = new ArrayList<>();
+			if (request.getBuildRoot() != null)
+				executor = Executors.newFixedThreadPool(Runtime.getRuntime()
+						.availableProcessors());
+
+			try {
+				for (Package metapkg : metapackages) {
+					for (Entry<String, Set<IInstallableUnit>> entry : metapkg
+							.getPackageMap().entrySet()) {
+						long startTime = System.currentTimeMillis();
+						String name = entry.getKey();
+						Set<IInstallableUnit> content = entry.getValue();
+
+						// Find if any IUs in this package use or contain native components
+						boolean archfulDropin = false;
+						for (IInstallableUnit unit : content) {
+							EclipseArtifact provide = reactorMap.get(P2Utils.getPath(unit));
+							if (provide != null && provide.isNative()) {
+								archfulDropin = true;
+							}
+						}
 
-				for (IInstallableUnit unit : content) {
-					for (IArtifactKey artifact : unit.getArtifacts()) {
-						EclipseArtifact provide = reactorMap.get(P2Utils.getPath(unit));
-						String type = provide.isFeature() ? "features" : "plugins";
-						StringBuilder artifactName = new StringBuilder(artifact.getId()).append("_").append(artifact.getVersion());
-						if (!P2Utils.isBundleShapeDir(unit)) {
-							artifactName.append(".jar");
+						// Determine the dropins directory to use
+						Path dropinDir;
+						if (name.endsWith("-tests")) {
+							dropinDir = currentScl.getTestBundleDir();
+						} else {
+							if (archfulDropin) {
+								dropinDir = currentScl.getArchDropletDir();
+							} else {
+								dropinDir = currentScl.getNoarchDropletDir();
+							}
 						}
-						Path path = installationPath.resolve(type).resolve(
-								artifactName.toString());
-						if (provide.getInstalledPath() != null)
+						if (dropinDir == null)
 							throw new RuntimeException(
-									"One provide has multiple artifacts: "
-											+ provide.getInstalledPath()
-											+ " and " + path);
-						provide.setInstalledPath(Paths.get("/").resolve(path));
-
-						provide.setId(artifact.getId());
-						provide.setVersion(artifact.getVersion().toString());
-						dropin.addProvide(provide);
-
-						if (namespace != null && !namespace.isEmpty())
-							provide.setProperty("osgi.namespace", namespace);
-
-						Set<IInstallableUnit> requires = reactorRequires
-								.get(unit);
-						requires.removeAll(content);
-						// Remove all fragments from requires generation
-						requires.removeAll(requires.stream().filter(
-						        r -> r.getProvidedCapabilities().stream().anyMatch(
-						                p -> p.getNamespace().equals("osgi.fragment")))
-                                        .collect(Collectors.toSet()));
-						if (!requires.isEmpty()) {
-							provide.setProperty("osgi.requires", requires
-									.stream().map(P2Utils::toString)
-									.collect(Collectors.joining(",")));
+									"Current SCL is not capable of holding Eclipse plugins.");
+						dropinDir = Paths.get("/").relativize(dropinDir);
+
+						logger.info("Creating {} dropin {}...", archfulDropin ? "archful" : "noarch", name);
+						Dropin dropin = new Dropin(name, dropinDir.resolve(name));
+						dropins.add(dropin);
+
+						P2Utils.dump("Metapackage contents", content);
+						Set<IInstallableUnit> symlinks = new LinkedHashSet<>();
+						symlinks.addAll(content);
+						content.retainAll(reactor);
+						symlinks.removeAll(content);
+						P2Utils.dump("Dropin physical units", content);
+						P2Utils.dump("Dropin symlinks", symlinks);
+
+						Path installationPath = dropin.getPath();
+						for (IInstallableUnit unit : content) {
+							for (IArtifactKey artifact : unit.getArtifacts()) {
+								EclipseArtifact provide = reactorMap.get(P2Utils.getPath(unit));
+								String type = provide.isFeature() ? "features" : "plugins";
+								StringBuilder artifactName = new StringBuilder(artifact.getId()).append("_").append(artifact.getVersion());
+								if (!P2Utils.isBundleShapeDir(unit)) {
+									artifactName.append(".jar");
+								}
+								Path path = installationPath.resolve(type).resolve(
+										artifactName.toString());
+								if (provide.getInstalledPath() != null)
+									throw new RuntimeException(
+											"One provide has multiple artifacts: "
+													+ provide.getInstalledPath()
+													+ " and " + path);
+								provide.setInstalledPath(Paths.get("/").resolve(path));
+
+								provide.setId(artifact.getId());
+								provide.setVersion(artifact.getVersion().toString());
+								dropin.addProvide(provide);
+
+								if (namespace != null && !namespace.isEmpty())
+									provide.setProperty("osgi.namespace", namespace);
+
+								Set<IInstallableUnit> requires = reactorRequires
+										.get(unit);
+								requires.removeAll(content);
+								// Remove all fragments from requires generation
+								requires.removeAll(requires.stream().filter(
+								        r -> r.getProvidedCapabilities().stream().anyMatch(
+								                p -> p.getNamespace().equals("osgi.fragment")))
+		                                        .collect(Collectors.toSet()));
+								if (!requires.isEmpty()) {
+									provide.setProperty("osgi.requires", requires
+											.stream().map(P2Utils::toString)
+											.collect(Collectors.joining(",")));
+								}
+							}
+						}
+
+						if (executor != null) {
+							DropinMaterializer materializer = new DropinMaterializer(
+									request.getBuildRoot().resolve(installationPath),
+									metrics);
+							materializations.add(executor.submit(() -> {
+								InstallerMetrics.Phase materialization = metrics
+										.phase("materialize " + name);
+								try {
+									materializer.materialize(content, symlinks);
+								} finally {
+									materialization.close();
+								}
+								if (listener != null)
+									listener.dropinInstalled(dropin,
+											System.currentTimeMillis() - startTime);
+								return null;
+							}));
+						} else if (listener != null) {
+							listener.dropinInstalled(dropin,
+									System.currentTimeMillis() - startTime);
 						}
 					}
 				}
+
+				for (Future<?> materialization : materializations) {
+					try {
+						materialization.get();
+					} catch (ExecutionException e) {
+						if (e.getCause() instanceof Exception)
+							throw (Exception) e.getCause();
+						throw e;
+					}
+				}
+			} finally {
+				if (executor != null)
+					executor.shutdownNow();
+			}
+
+			return new EclipseInstallationResult(dropins);
+		} finally {
+			// Installer may live in a long-running process, don't let temporary
+			// repositories accumulate there
+			if (reactorRepo != null) {
+				reactorRepo.unload();
+				P2Utils.delete(reactorRepo.getLocation().toFile());
+			}
+
+			// Report failed installations too, up to the phase which failed
+			phase.close();
+			total.close();
+			metrics.commitCounters();
+			if (request.getMetricsReport() != null) {
+				try {
+					metrics.writeReport(request.getMetricsReport());
+				} catch (IOException e) {
+					logger.warn("Unable to write metrics report {}",
+							request.getMetricsReport(), e);
+				}
 			}
 		}
+	}
 
-		return new EclipseInstallationResult(dropins);
+	/**
+	 * Resolve requirements of given reactor units against system index and
+	 * create metapackages, without publishing or installing anything. Used by
+	 * benchmarks to measure dependency resolution alone.
+	 */
+	Set<Package> resolve(Set<IInstallableUnit> reactorUnits,
+			IFedoraBundleRepository systemIndex,
+			Map<String, Set<IInstallableUnit>> packages) {
+		reactor = reactorUnits;
+		index = systemIndex;
+		indexFingerprint = null;
+		metrics = new InstallerMetrics();
+		createMetapackages(packages);
+		resolveDeps();
+		return metapackages;
 	}
 
 	private void createMetapackages(
@@ -317,6 +442,7 @@ public class DefaultEclipseInstaller implements EclipseInstaller {
 				"meta", false, false))
 			return;
 
+		metrics.increment("requirements.unresolved");
 		if (req.getMin() == 0)
 			logger.info("Unable to satisfy optional dependency from {} to {}",
 					iu, req);
@@ -329,6 +455,7 @@ public class DefaultEclipseInstaller implements EclipseInstaller {
 			boolean generateDep, boolean generateReq) {
 		IQuery<IInstallableUnit> query = QueryUtil.createMatchQuery(req
 				.getMatches());
+		metrics.add("requirements.candidates", repo.size());
 		List<IInstallableUnit> matches = Arrays.asList(query.perform(repo.iterator())
 				.toUnmodifiableSet().toArray(new IInstallableUnit[0]));
 		if (matches.isEmpty())
@@ -361,6 +488,7 @@ public class DefaultEclipseInstaller implements EclipseInstaller {
 
 		unitCache.add(match);
 		logger.debug("      => {} ({})", match, desc);
+		metrics.increment("requirements." + desc);
 
 		if (generateDep) {
 		    Package dep = metapackageLookup.get(match);
@@ -402,37 +530,6 @@ public class DefaultEclipseInstaller implements EclipseInstaller {
 		return requirements;
 	}
 
-	private void createRunnableRepository(Repository reactorRepo,
-			Path installationPath, Set<IInstallableUnit> content,
-			Set<IInstallableUnit> symlinks) throws Exception {
-		logger.debug("Creating runnable repository...");
-		Repository packageRepo = Repository.createTemp();
-		Set<IInstallableUnit> dropinContent = new LinkedHashSet<>(content);
-		dropinContent.addAll(symlinks);
-		Director.mirror(packageRepo, reactorRepo, dropinContent);
-		Repository runnableRepo = Repository.create(installationPath);
-		Director.repo2runnable(runnableRepo, packageRepo);
-		Files.delete(installationPath.resolve("artifacts.jar"));
-		Files.delete(installationPath.resolve("content.jar"));
-
-		Path pluginsDir = runnableRepo.getLocation().resolve("plugins");
-		for (IInstallableUnit iu : symlinks) {
-			Files.createDirectories(pluginsDir);
-			Path path = P2Utils.getPath(iu);
-			if (path == null) {
-				logger.error("Unable to locate dependency in index: {}", iu);
-			} else {
-				String baseName = iu.getId() + "_" + iu.getVersion();
-				String suffix = Files.isDirectory(path) ? "" : ".jar";
-				P2Utils.delete(pluginsDir.resolve(baseName + suffix).toFile());
-				Files.createSymbolicLink(pluginsDir.resolve(baseName + suffix),
-						path);
-				logger.debug("Linked external dependency {} => {}", baseName
-						+ suffix, path);
-			}
-		}
-	}
-
 	private static Set<IInstallableUnit> getMetaUnits() {
 		IPublisherInfo info = new PublisherInfo();
 		IPublisherResult result = new PublisherResult();
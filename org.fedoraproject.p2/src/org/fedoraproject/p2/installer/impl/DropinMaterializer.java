@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.equinox.frameworkadmin.BundleInfo;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.IProvidedCapability;
+import org.eclipse.equinox.simpleconfigurator.manipulator.SimpleConfiguratorManipulator;
+import org.fedoraproject.p2.Activator;
+import org.fedoraproject.p2.P2Utils;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates runnable layout of a dropin (plugins and features directories)
+ * directly from reactor artifacts. Jar-shaped plugins are hardlinked into the
+ * dropin when possible and copied otherwise; only directory-shaped plugins and
+ * features packed as jars need to be extracted.
+ * <p>
+ * The result is the same as mirroring units into a p2 repository and running
+ * repo2runnable on it, including the generated {@code fragment.info}.
+ */
+public class DropinMaterializer {
+	private static final Logger logger = LoggerFactory
+			.getLogger(DropinMaterializer.class);
+
+	private static final String FEATURE_CLASSIFIER = "org.eclipse.update.feature";
+
+	private static final String ECLIPSE_TYPE_NAMESPACE = "org.eclipse.equinox.p2.eclipse.type";
+
+	private static final int BUNDLE_START_LEVEL = 4;
+
+	private static final String MANIFEST_ENTRY = "META-INF/MANIFEST.MF";
+
+	// Configurator manipulator is not known to be thread-safe, while dropins
+	// may be materialized concurrently
+	private static final Object MANIPULATOR_LOCK = new Object();
+
+	private final Path location;
+
+	private final Path pluginsDir;
+
+	private final Path featuresDir;
+
+	// Set to false after first failed attempt to create a hardlink
+	private boolean linkable = true;
+
+	private final InstallerMetrics metrics;
+
+	public DropinMaterializer(Path location) {
+		this(location, new InstallerMetrics());
+	}
+
+	public DropinMaterializer(Path location, InstallerMetrics metrics) {
+		this.location = location;
+		this.pluginsDir = location.resolve("plugins");
+		this.featuresDir = location.resolve("features");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Create runnable dropin layout.
+	 *
+	 * @param content
+	 *            reactor units to install physically
+	 * @param symlinks
+	 *            system units to install as symbolic links
+	 */
+	public void materialize(Set<IInstallableUnit> content,
+			Set<IInstallableUnit> symlinks) throws IOException {
+		logger.debug("Creating runnable repository...");
+		Files.createDirectories(location);
+
+		for (IInstallableUnit unit : content) {
+			Path source = P2Utils.getPath(unit);
+			for (IArtifactKey key : unit.getArtifacts()) {
+				String baseName = key.getId() + "_" + key.getVersion();
+				if (FEATURE_CLASSIFIER.equals(key.getClassifier()))
+					unpack(source, featuresDir.resolve(baseName));
+				else if (P2Utils.isBundleShapeDir(unit))
+					unpack(source, pluginsDir.resolve(baseName));
+				else
+					pack(source, pluginsDir.resolve(baseName + ".jar"));
+			}
+		}
+
+		for (IInstallableUnit iu : symlinks) {
+			Files.createDirectories(pluginsDir);
+			Path path = P2Utils.getPath(iu);
+			if (path == null) {
+				logger.error("Unable to locate dependency in index: {}", iu);
+			} else {
+				String baseName = iu.getId() + "_" + iu.getVersion();
+				String suffix = Files.isDirectory(path) ? "" : ".jar";
+				P2Utils.delete(pluginsDir.resolve(baseName + suffix).toFile());
+				Files.createSymbolicLink(pluginsDir.resolve(baseName + suffix),
+						path);
+				metrics.increment("files.symlinked");
+				logger.debug("Linked external dependency {} => {}", baseName
+						+ suffix, path);
+			}
+		}
+
+		Set<IInstallableUnit> units = new LinkedHashSet<>(content);
+		units.addAll(symlinks);
+		writeFragmentInfo(units);
+	}
+
+	/**
+	 * Install jar-shaped plugin, preferably as a hardlink to the source.
+	 */
+	private void pack(Path source, Path target) throws IOException {
+		Files.createDirectories(target.getParent());
+		if (Files.isDirectory(source)) {
+			// Entries are sorted and timestamped reproducibly, with manifest
+			// first so that JarInputStream can find it
+			Map<String, Path> files = new TreeMap<>((a, b) -> {
+				int diff = Integer.compare(getEntryRank(a), getEntryRank(b));
+				return diff != 0 ? diff : a.compareTo(b);
+			});
+			for (Path file : listFiles(source))
+				files.put(toEntryName(source.relativize(file)), file);
+			FileTime sourceDate = getSourceDate();
+			try (OutputStream os = Files.newOutputStream(target);
+					ZipOutputStream zos = new ZipOutputStream(os)) {
+				if (files.containsKey(MANIFEST_ENTRY)) {
+					ZipEntry dirEntry = new ZipEntry("META-INF/");
+					dirEntry.setLastModifiedTime(sourceDate != null ? sourceDate
+							: Files.getLastModifiedTime(files.get(MANIFEST_ENTRY)));
+					zos.putNextEntry(dirEntry);
+					zos.closeEntry();
+				}
+				for (Map.Entry<String, Path> file : files.entrySet()) {
+					ZipEntry entry = new ZipEntry(file.getKey());
+					entry.setLastModifiedTime(sourceDate != null ? sourceDate
+							: Files.getLastModifiedTime(file.getValue()));
+					zos.putNextEntry(entry);
+					metrics.add("bytes.written", Files.copy(file.getValue(), zos));
+					metrics.increment("files.packed");
+					zos.closeEntry();
+				}
+			}
+		} else {
+			link(source, target);
+		}
+	}
+
+	/**
+	 * Install directory-shaped plugin or feature, extracting it if needed.
+	 */
+	private void unpack(Path source, Path target) throws IOException {
+		if (Files.isDirectory(source)) {
+			for (Path file : listFiles(source)) {
+				Path targetFile = target.resolve(source.relativize(file)
+						.toString());
+				Files.createDirectories(targetFile.getParent());
+				link(file, targetFile);
+			}
+			return;
+		}
+
+		Files.createDirectories(target);
+		try (InputStream is = Files.newInputStream(source);
+				ZipInputStream zis = new ZipInputStream(is)) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				Path targetFile = target.resolve(entry.getName()).normalize();
+				if (!targetFile.startsWith(target))
+					throw new IOException("Illegal entry " + entry.getName()
+							+ " in " + source);
+				if (entry.isDirectory()) {
+					Files.createDirectories(targetFile);
+				} else {
+					Files.createDirectories(targetFile.getParent());
+					metrics.add("bytes.written", Files.copy(zis, targetFile));
+					metrics.increment("files.extracted");
+				}
+			}
+		}
+	}
+
+	private void link(Path source, Path target) throws IOException {
+		if (linkable) {
+			try {
+				Files.createLink(target, source.toRealPath());
+				metrics.increment("files.linked");
+				return;
+			} catch (FileSystemException | UnsupportedOperationException e) {
+				// Different file systems or no hardlink support, fall back to
+				// copying for the rest of this dropin
+				logger.debug("Unable to hardlink {}, copying instead", source);
+				linkable = false;
+			}
+		}
+		Files.copy(source, target);
+		metrics.increment("files.copied");
+		metrics.add("bytes.written", Files.size(target));
+	}
+
+	private static List<Path> listFiles(Path dir) throws IOException {
+		List<Path> files = new ArrayList<>();
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) {
+				files.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return files;
+	}
+
+	private static int getEntryRank(String name) {
+		return name.equals(MANIFEST_ENTRY) ? 0 : 1;
+	}
+
+	/**
+	 * @return time from {@code SOURCE_DATE_EPOCH} environment variable used
+	 *         for reproducible builds, or {@code null} if it is not set
+	 */
+	private static FileTime getSourceDate() {
+		String epoch = System.getenv("SOURCE_DATE_EPOCH");
+		if (epoch == null || epoch.isEmpty())
+			return null;
+		try {
+			return FileTime.from(Long.parseLong(epoch.trim()), TimeUnit.SECONDS);
+		} catch (NumberFormatException e) {
+			logger.warn("Ignoring invalid SOURCE_DATE_EPOCH: {}", epoch);
+			return null;
+		}
+	}
+
+	private static String toEntryName(Path relativePath) {
+		StringBuilder sb = new StringBuilder();
+		for (Path component : relativePath) {
+			if (sb.length() > 0)
+				sb.append('/');
+			sb.append(component);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Write {@code fragment.info} listing all bundles present in the dropin,
+	 * the same way repo2runnable does when asked to create fragments.
+	 */
+	private void writeFragmentInfo(Collection<IInstallableUnit> units)
+			throws IOException {
+		Set<BundleInfo> bundles = new LinkedHashSet<>();
+		for (IInstallableUnit unit : units) {
+			if (!isBundle(unit))
+				continue;
+			String baseName = unit.getId() + "_" + unit.getVersion();
+			Path path = pluginsDir.resolve(baseName);
+			if (!Files.exists(path))
+				path = pluginsDir.resolve(baseName + ".jar");
+			if (Files.exists(path))
+				bundles.add(new BundleInfo(unit.getId(), unit.getVersion()
+						.toString(), path.toUri(), BUNDLE_START_LEVEL, false));
+		}
+
+		BundleContext context = Activator.getContext();
+		ServiceReference<SimpleConfiguratorManipulator> reference = context
+				.getServiceReference(SimpleConfiguratorManipulator.class);
+		if (reference == null)
+			throw new IllegalStateException(
+					"Simple configurator manipulator service is not available");
+		SimpleConfiguratorManipulator manipulator = context
+				.getService(reference);
+		try {
+			synchronized (MANIPULATOR_LOCK) {
+				manipulator.saveConfiguration(
+						bundles.toArray(new BundleInfo[bundles.size()]),
+						location.resolve("fragment.info").toFile(),
+						location.toUri());
+			}
+		} finally {
+			context.ungetService(reference);
+		}
+	}
+
+	private static boolean isBundle(IInstallableUnit unit) {
+		for (IProvidedCapability capability : unit.getProvidedCapabilities()) {
+			if (ECLIPSE_TYPE_NAMESPACE.equals(capability.getNamespace())
+					&& "bundle".equals(capability.getName()))
+				return true;
+		}
+		return false;
+	}
+}
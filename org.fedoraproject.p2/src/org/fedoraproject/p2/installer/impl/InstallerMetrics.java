@@ -0,0 +1,164 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.fedoraproject.p2.P2Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timing of installation phases and counters of work done during single
+ * installation. Phases and counters can be recorded concurrently.
+ * <p>
+ * Metrics can be written as a JSON report. Phases and counters are also
+ * emitted as JFR events when the runtime supports JFR.
+ */
+public class InstallerMetrics {
+	private static final Logger logger = LoggerFactory
+			.getLogger(InstallerMetrics.class);
+
+	private static final boolean JFR_AVAILABLE = P2Utils.isJfrAvailable();
+
+	private final List<Phase> phases = Collections
+			.synchronizedList(new ArrayList<>());
+
+	private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * Start timing installation phase. Phase ends when returned object is
+	 * closed for the first time.
+	 */
+	public Phase phase(String name) {
+		return new Phase(name);
+	}
+
+	public void increment(String counter) {
+		add(counter, 1);
+	}
+
+	public void add(String counter, long delta) {
+		counters.computeIfAbsent(counter, c -> new AtomicLong()).addAndGet(
+				delta);
+	}
+
+	public long get(String counter) {
+		AtomicLong value = counters.get(counter);
+		return value != null ? value.get() : 0;
+	}
+
+	/**
+	 * Emit final values of all counters as JFR events.
+	 */
+	public void commitCounters() {
+		if (JFR_AVAILABLE) {
+			for (Map.Entry<String, Long> entry : getCounters().entrySet())
+				JfrEvents.counter(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private Map<String, Long> getCounters() {
+		Map<String, Long> result = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> entry : counters.entrySet())
+			result.put(entry.getKey(), entry.getValue().get());
+		return result;
+	}
+
+	public void writeReport(Path path) throws IOException {
+		List<Phase> phasesCopy;
+		synchronized (phases) {
+			phasesCopy = new ArrayList<>(phases);
+		}
+
+		try (Writer writer = Files.newBufferedWriter(path,
+				StandardCharsets.UTF_8)) {
+			writer.write("{\n  \"phases\": [");
+			String separator = "\n";
+			for (Phase phase : phasesCopy) {
+				writer.write(separator + "    {\"name\": " + quote(phase.name)
+						+ ", \"thread\": " + quote(phase.thread)
+						+ ", \"timeMillis\": "
+						+ TimeUnit.NANOSECONDS.toMillis(phase.duration) + "}");
+				separator = ",\n";
+			}
+			writer.write("\n  ],\n  \"counters\": {");
+			separator = "\n";
+			for (Map.Entry<String, Long> entry : getCounters().entrySet()) {
+				writer.write(separator + "    " + quote(entry.getKey()) + ": "
+						+ entry.getValue());
+				separator = ",\n";
+			}
+			writer.write("\n  }\n}\n");
+		}
+	}
+
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder("\"");
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		return sb.append('"').toString();
+	}
+
+	public class Phase implements AutoCloseable {
+		private final String name;
+
+		private final String thread;
+
+		private final long start;
+
+		private final Object event;
+
+		private long duration;
+
+		private boolean closed;
+
+		Phase(String name) {
+			this.name = name;
+			this.thread = Thread.currentThread().getName();
+			this.event = JFR_AVAILABLE ? JfrEvents.beginPhase(name) : null;
+			this.start = System.nanoTime();
+		}
+
+		@Override
+		public void close() {
+			// Phase can be closed again when installation fails
+			if (closed)
+				return;
+			closed = true;
+			duration = System.nanoTime() - start;
+			if (event != null)
+				JfrEvents.endPhase(event);
+			phases.add(this);
+			logger.debug("Phase {} took {} ms", name,
+					TimeUnit.NANOSECONDS.toMillis(duration));
+		}
+	}
+}
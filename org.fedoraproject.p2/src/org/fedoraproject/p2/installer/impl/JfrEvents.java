@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR events emitted by the installer. This class must be loaded only after
+ * JFR was found to be available, see {@link InstallerMetrics}.
+ */
+final class JfrEvents {
+	private JfrEvents() {
+	}
+
+	@Name("org.fedoraproject.p2.InstallerPhase")
+	@Label("Installer Phase")
+	@Category("Fedora P2")
+	static class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+	}
+
+	@Name("org.fedoraproject.p2.InstallerCounter")
+	@Label("Installer Counter")
+	@Category("Fedora P2")
+	static class CounterEvent extends Event {
+		@Label("Counter")
+		String counter;
+
+		@Label("Value")
+		long value;
+	}
+
+	static Object beginPhase(String phase) {
+		PhaseEvent event = new PhaseEvent();
+		event.phase = phase;
+		event.begin();
+		return event;
+	}
+
+	static void endPhase(Object event) {
+		((PhaseEvent) event).commit();
+	}
+
+	static void counter(String counter, long value) {
+		CounterEvent event = new CounterEvent();
+		if (event.isEnabled()) {
+			event.counter = counter;
+			event.value = value;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.internal.repository.mirroring.Mirroring;
+import org.eclipse.equinox.p2.metadata.IArtifactKey;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.fedoraproject.p2.P2Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of published reactor artifacts. Every plugin and feature is published
+ * into its own small p2 repository stored under the cache directory and keyed
+ * by a hash of artifact contents. Unchanged artifacts are copied from the
+ * cache instead of being published again.
+ */
+public class PublisherCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(PublisherCache.class);
+
+	// Hashed into key of every cache entry. Changing it when publishing of
+	// reactor units changes makes installer ignore entries published the old
+	// way.
+	private static final String FORMAT = "1";
+
+	// Entries which were not used for this long are removed
+	private static final long MAX_AGE = TimeUnit.DAYS.toMillis(30);
+
+	private final Path cacheDir;
+
+	private final InstallerMetrics metrics;
+
+	public PublisherCache(Path cacheDir) {
+		this(cacheDir, new InstallerMetrics());
+	}
+
+	public PublisherCache(Path cacheDir, InstallerMetrics metrics) {
+		this.cacheDir = cacheDir.resolve("publish");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Publish given plugins and features into repository, reusing cached
+	 * metadata and artifacts of unchanged ones.
+	 *
+	 * @param repository
+	 *            destination repository
+	 * @param bundles
+	 *            paths to plugins
+	 * @param features
+	 *            paths to features
+	 */
+	public void publish(Repository repository, Iterable<Path> bundles,
+			Iterable<Path> features) throws IOException, ProvisionException {
+		Files.createDirectories(cacheDir);
+
+		List<Entry> entries = new ArrayList<>();
+		for (Path bundle : bundles)
+			entries.add(getEntry(bundle, false));
+		for (Path feature : features)
+			entries.add(getEntry(feature, true));
+
+		Set<IInstallableUnit> units = new LinkedHashSet<>();
+		for (Entry entry : entries)
+			units.addAll(entry.units);
+		repository.getMetadataRepository().addInstallableUnits(units);
+
+		IArtifactRepository destination = repository.getArtifactRepository();
+		List<IStatus> failures = new ArrayList<>();
+		IStatus status = destination.executeBatch(monitor -> {
+			for (Entry entry : entries) {
+				Set<IArtifactKey> keys = new LinkedHashSet<>();
+				for (IInstallableUnit unit : entry.units)
+					keys.addAll(unit.getArtifacts());
+				if (keys.isEmpty())
+					continue;
+
+				Mirroring mirror = new Mirroring(entry.artifactRepository,
+						destination, true);
+				mirror.setArtifactKeys(keys.toArray(new IArtifactKey[keys
+						.size()]));
+				IStatus mirrorStatus = mirror.run(true, false);
+				if (!mirrorStatus.isOK())
+					failures.add(mirrorStatus);
+			}
+		}, null);
+		if (!failures.isEmpty())
+			throw new ProvisionException(failures.get(0));
+		if (!status.isOK())
+			throw new ProvisionException(status);
+
+		removeStaleEntries();
+	}
+
+	private Entry getEntry(Path artifact, boolean isFeature)
+			throws IOException, ProvisionException {
+		String key = computeKey(artifact, isFeature);
+		Path location = cacheDir.resolve(key);
+
+		if (Files.isDirectory(location)) {
+			try {
+				Entry entry = loadEntry(location, artifact);
+				logger.debug("Using cached metadata of {}", artifact);
+				metrics.increment("publisherCache.hits");
+				Files.setLastModifiedTime(location,
+						FileTime.fromMillis(System.currentTimeMillis()));
+				return entry;
+			} catch (ProvisionException e) {
+				logger.warn("Unable to load cached metadata {}", location, e);
+				P2Utils.delete(location.toFile());
+			}
+		}
+
+		metrics.increment("publisherCache.misses");
+		Path tempDir = Files.createTempDirectory(cacheDir, ".tmp-");
+		try {
+			Repository tempRepo = Repository.create(tempDir);
+			if (isFeature)
+				Director.publish(tempRepo, null,
+						Collections.singleton(artifact));
+			else
+				Director.publish(tempRepo, Collections.singleton(artifact),
+						null);
+			tempRepo.unload();
+
+			if (!P2Utils.renameDirectory(tempDir, location))
+				logger.debug("Metadata of {} was published concurrently",
+						artifact);
+		} finally {
+			if (Files.exists(tempDir))
+				P2Utils.delete(tempDir.toFile());
+		}
+
+		return loadEntry(location, artifact);
+	}
+
+	private static Entry loadEntry(Path location, Path artifact)
+			throws ProvisionException {
+		Repository repository = Repository.load(location);
+		Set<IInstallableUnit> units = repository.getAllUnits();
+		// Forget loaded repository, so that units modified below are not
+		// shared with other entries having the same contents
+		repository.unload();
+
+		// Cached units refer to path at which artifact was first published
+		for (IInstallableUnit unit : units) {
+			if (P2Utils.getPath(unit) != null)
+				P2Utils.setPath(unit, artifact.toFile());
+		}
+
+		return new Entry(repository.getArtifactRepository(), units);
+	}
+
+	private void removeStaleEntries() throws IOException {
+		long threshold = System.currentTimeMillis() - MAX_AGE;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir)) {
+			for (Path entry : stream) {
+				if (Files.getLastModifiedTime(entry).toMillis() < threshold) {
+					logger.debug("Removing stale cache entry {}", entry);
+					P2Utils.delete(entry.toFile());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute hash of artifact contents. Directory-shaped artifacts are
+	 * hashed together with relative paths of all files they contain.
+	 */
+	private String computeKey(Path artifact, boolean isFeature)
+			throws IOException {
+		MessageDigest digest = P2Utils.newSha256();
+
+		update(digest, FORMAT + (isFeature ? " feature" : " plugin"));
+
+		if (Files.isDirectory(artifact)) {
+			List<Path> files = new ArrayList<>();
+			Files.walkFileTree(artifact, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file,
+						BasicFileAttributes attrs) {
+					files.add(file);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			Collections.sort(files);
+			metrics.add("files.hashed", files.size());
+			for (Path file : files) {
+				update(digest, artifact.relativize(file).toString());
+				update(digest, file);
+			}
+		} else {
+			metrics.increment("files.hashed");
+			update(digest, artifact);
+		}
+
+		return P2Utils.toHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, String text) {
+		digest.update(text.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static void update(MessageDigest digest, Path file)
+			throws IOException {
+		byte[] buffer = new byte[65536];
+		try (InputStream stream = Files.newInputStream(file)) {
+			int n;
+			while ((n = stream.read(buffer)) > 0)
+				digest.update(buffer, 0, n);
+		}
+		digest.update((byte) 0);
+	}
+
+	private static class Entry {
+		final IArtifactRepository artifactRepository;
+
+		final Set<IInstallableUnit> units;
+
+		Entry(IArtifactRepository artifactRepository,
+				Set<IInstallableUnit> units) {
+			this.artifactRepository = artifactRepository;
+			this.units = units;
+		}
+	}
+}
@@ -30,7 +30,9 @@ import org.eclipse.equinox.p2.query.IQueryResult;
 import org.eclipse.equinox.p2.query.IQueryable;
 import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.artifact.IArtifactRepository;
+import org.eclipse.equinox.p2.repository.artifact.IArtifactRepositoryManager;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
 import org.fedoraproject.p2.P2Utils;
 
 /**
@@ -86,6 +88,23 @@ public class Repository {
 		return new Repository(location, artifactRepository, metadataRepository);
 	}
 
+	/**
+	 * Remove this repository from p2 repository managers, so that it is not
+	 * remembered after its location is moved or deleted.
+	 */
+	public void unload() throws ProvisionException {
+		IProvisioningAgent agent = P2Utils.getAgent();
+		URI uri = location.toUri();
+
+		IArtifactRepositoryManager artifactManager = (IArtifactRepositoryManager) agent
+				.getService(IArtifactRepositoryManager.SERVICE_NAME);
+		artifactManager.removeRepository(uri);
+
+		IMetadataRepositoryManager metadataManager = (IMetadataRepositoryManager) agent
+				.getService(IMetadataRepositoryManager.SERVICE_NAME);
+		metadataManager.removeRepository(uri);
+	}
+
 	public Path getLocation() {
 		return location;
 	}
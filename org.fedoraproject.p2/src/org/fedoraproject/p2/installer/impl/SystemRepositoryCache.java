@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.installer.impl;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.equinox.p2.core.ProvisionException;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.fedoraproject.p2.CompoundBundleRepository;
+import org.fedoraproject.p2.EclipseSystemLayout;
+import org.fedoraproject.p2.IFedoraBundleRepository;
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.SCL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent snapshot of the system bundle repository. Platform, internal and
+ * external units are stored as simple p2 metadata repositories under the cache
+ * directory and are reused for as long as the fingerprint of all SCL locations
+ * (directory modification times and entry counts) stays the same.
+ */
+public class SystemRepositoryCache {
+	private static final Logger logger = LoggerFactory
+			.getLogger(SystemRepositoryCache.class);
+
+	// First line of fingerprint naming snapshots. Changing it when indexing
+	// of system bundles changes makes snapshots written by older installers
+	// stale, so that they are removed.
+	private static final String FORMAT = "1";
+
+	private static final String PLATFORM = "platform";
+
+	private static final String INTERNAL = "internal";
+
+	private static final String EXTERNAL = "external";
+
+	private final Path cacheDir;
+
+	private final InstallerMetrics metrics;
+
+	public SystemRepositoryCache(Path cacheDir) {
+		this(cacheDir, new InstallerMetrics());
+	}
+
+	public SystemRepositoryCache(Path cacheDir, InstallerMetrics metrics) {
+		this.cacheDir = cacheDir.resolve("system");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Get system bundle repository for given software collections, either
+	 * from snapshot or by indexing system locations.
+	 *
+	 * @param confFiles
+	 *            ordered list of SCL configuration files
+	 * @return system bundle repository
+	 */
+	public IFedoraBundleRepository getRepository(List<Path> confFiles)
+			throws IOException, ProvisionException {
+		return getRepository(confFiles, computeFingerprint(confFiles));
+	}
+
+	/**
+	 * Get system bundle repository for given software collections, whose
+	 * fingerprint was already computed with {@link #computeFingerprint(List)}.
+	 */
+	public IFedoraBundleRepository getRepository(List<Path> confFiles,
+			String fingerprint) throws IOException, ProvisionException {
+		Path snapshotDir = cacheDir.resolve(fingerprint);
+
+		if (Files.isDirectory(snapshotDir)) {
+			try {
+				IFedoraBundleRepository snapshot = loadSnapshot(snapshotDir);
+				logger.info("Using system repository snapshot {}", snapshotDir);
+				metrics.increment("systemCache.hits");
+				return snapshot;
+			} catch (ProvisionException e) {
+				logger.warn("Unable to load system repository snapshot {}",
+						snapshotDir, e);
+			}
+		}
+
+		metrics.increment("systemCache.misses");
+		List<SCL> scls = new ArrayList<>();
+		for (Path conf : confFiles)
+			scls.add(new SCL(conf));
+		IFedoraBundleRepository index = new CompoundBundleRepository(scls);
+
+		try {
+			writeSnapshot(index, snapshotDir);
+		} catch (IOException | ProvisionException e) {
+			logger.warn("Unable to write system repository snapshot {}",
+					snapshotDir, e);
+		}
+
+		return index;
+	}
+
+	private IFedoraBundleRepository loadSnapshot(Path snapshotDir)
+			throws ProvisionException {
+		Set<IInstallableUnit> platformUnits = load(snapshotDir.resolve(PLATFORM));
+		Set<IInstallableUnit> internalUnits = load(snapshotDir.resolve(INTERNAL));
+		Set<IInstallableUnit> externalUnits = load(snapshotDir.resolve(EXTERNAL));
+		return new Snapshot(platformUnits, internalUnits, externalUnits);
+	}
+
+	private static Set<IInstallableUnit> load(Path location)
+			throws ProvisionException {
+		return new LinkedHashSet<>(Repository.load(location).getAllUnits());
+	}
+
+	private void writeSnapshot(IFedoraBundleRepository index, Path snapshotDir)
+			throws IOException, ProvisionException {
+		Files.createDirectories(cacheDir);
+		Path tempDir = Files.createTempDirectory(cacheDir, ".tmp-");
+		try {
+			save(tempDir.resolve(PLATFORM), index.getPlatformUnits());
+			save(tempDir.resolve(INTERNAL), index.getInternalUnits());
+			save(tempDir.resolve(EXTERNAL), index.getExternalUnits());
+
+			if (P2Utils.renameDirectory(tempDir, snapshotDir))
+				logger.debug("Wrote system repository snapshot {}",
+						snapshotDir);
+			else
+				logger.debug("System repository snapshot {} was written concurrently",
+						snapshotDir);
+		} finally {
+			if (Files.exists(tempDir))
+				P2Utils.delete(tempDir.toFile());
+		}
+
+		removeStaleSnapshots(snapshotDir);
+	}
+
+	private static void save(Path location, Set<IInstallableUnit> units)
+			throws ProvisionException {
+		Repository repository = Repository.create(location);
+		repository.getMetadataRepository().addInstallableUnits(units);
+		repository.unload();
+	}
+
+	private void removeStaleSnapshots(Path current) throws IOException {
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDir)) {
+			for (Path snapshot : stream) {
+				String name = snapshot.getFileName().toString();
+				if (!snapshot.equals(current) && !name.startsWith(".")) {
+					logger.debug("Removing stale system repository snapshot {}",
+							snapshot);
+					P2Utils.delete(snapshot.toFile());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compute a cheap fingerprint of the system bundle layout described by
+	 * given SCL configuration files. Only directories are examined; any
+	 * addition, removal or rename of a file changes the modification time of
+	 * its parent directory.
+	 */
+	public static String computeFingerprint(List<Path> confFiles)
+			throws IOException {
+		StringBuilder sb = new StringBuilder(FORMAT).append('\n');
+		for (Path conf : confFiles) {
+			sb.append(conf.toAbsolutePath()).append(' ')
+					.append(Files.getLastModifiedTime(conf).toMillis())
+					.append('\n');
+
+			Set<Path> locations = new LinkedHashSet<>();
+			EclipseSystemLayout.initLocations(new SCL(conf), locations,
+					locations, locations, false);
+			for (Path location : locations)
+				fingerprintLocation(location, sb);
+		}
+
+		return P2Utils.sha256(sb.toString());
+	}
+
+	private static void fingerprintLocation(Path location, StringBuilder sb)
+			throws IOException {
+		Files.walkFileTree(location, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+				Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path dir,
+							BasicFileAttributes attrs) throws IOException {
+						int count = 0;
+						try (DirectoryStream<Path> stream = Files
+								.newDirectoryStream(dir)) {
+							for (@SuppressWarnings("unused") Path entry : stream)
+								count++;
+						}
+						sb.append(dir).append(' ')
+								.append(attrs.lastModifiedTime().toMillis())
+								.append(' ').append(count).append('\n');
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file,
+							BasicFileAttributes attrs) {
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFileFailed(Path file,
+							IOException exc) {
+						// Unreadable directories and symlink loops are
+						// skipped by the indexer as well
+						return FileVisitResult.CONTINUE;
+					}
+				});
+	}
+
+	private static class Snapshot implements IFedoraBundleRepository {
+		private final Set<IInstallableUnit> platformUnits;
+
+		private final Set<IInstallableUnit> internalUnits;
+
+		private final Set<IInstallableUnit> externalUnits;
+
+		public Snapshot(Set<IInstallableUnit> platformUnits,
+				Set<IInstallableUnit> internalUnits,
+				Set<IInstallableUnit> externalUnits) {
+			this.platformUnits = platformUnits;
+			this.internalUnits = internalUnits;
+			this.externalUnits = externalUnits;
+		}
+
+		@Override
+		public Set<IInstallableUnit> getPlatformUnits() {
+			return Collections.unmodifiableSet(platformUnits);
+		}
+
+		@Override
+		public Set<IInstallableUnit> getInternalUnits() {
+			return Collections.unmodifiableSet(internalUnits);
+		}
+
+		@Override
+		public Set<IInstallableUnit> getExternalUnits() {
+			return Collections.unmodifiableSet(externalUnits);
+		}
+	}
+}
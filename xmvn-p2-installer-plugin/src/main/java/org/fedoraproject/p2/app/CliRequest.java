@@ -45,23 +45,33 @@ class CliRequest {
 	@Parameter(names = { "-p", "--print-deps" }, description = "Print resolved dependencies in machine-readable form")
 	private boolean printDeps = false;
 
-	@Parameter(names = { "-n", "--name" }, required = true, description = "Name of main dropin")
+	@Parameter(names = { "-j", "--json" }, description = "Print installed dropins and provides as JSON Lines as soon as they are installed")
+	private boolean json = false;
+
+	@Parameter(names = { "-n", "--name" }, description = "Name of main dropin")
 	private String name;
 
 	@Parameter(names = { "-R", "--install-root" }, description = "Root directory for installation")
 	private String root;
 
+	@Parameter(names = { "-c", "--cache-dir" }, description = "Directory for caching system repository snapshots between runs")
+	private String cacheDir;
+
+	@Parameter(names = { "-m", "--metrics" }, description = "Write timing of installation phases and counters to file as JSON")
+	private String metrics;
+
 	@DynamicParameter(names = "-M", description = "Assign installable unit to dropin")
 	private Map<String, String> mappings = new TreeMap<>();
 
 	@DynamicParameter(names = "-D", description = "Define system property")
 	private Map<String, String> defines = new TreeMap<>();
 
+	@Parameter(names = { "-b", "--batch" }, description = "Read installation requests from file, one command line per line, with arguments quoted as in shell")
+	private String batch;
+
 	public CliRequest(String[] args) {
 		try {
-			JCommander jcomm = new JCommander(this);
-			jcomm.parse(args);
-			jcomm.setProgramName(P2InstallerApp.class.getName());
+			JCommander jcomm = parse(args);
 
 			if (help) {
 				System.out.println(P2InstallerApp.class.getName()
@@ -71,17 +81,10 @@ class CliRequest {
 				System.exit(0);
 			}
 
-			if (debug && quiet)
-				throw new ParameterException(
-						"At most one of --quiet and --debug must be given");
 			if (debug || quiet)
 				System.setProperty("org.slf4j.simpleLogger.defaultLogLevel",
 						debug ? "trace" : "error");
 
-			if (root != null == dryRun)
-				throw new ParameterException(
-						"Exactly one of --install-root and --dry-run must be given");
-
 			for (String param : defines.keySet())
 				System.setProperty(param, defines.get(param));
 		} catch (ParameterException e) {
@@ -90,6 +93,75 @@ class CliRequest {
 		}
 	}
 
+	private CliRequest() {
+	}
+
+	/**
+	 * Parse single entry of batch file. Options not given in the entry are
+	 * inherited from batch command line. Options with process-wide effect,
+	 * that is logging level and system properties, can be given only on batch
+	 * command line.
+	 */
+	public static CliRequest parseBatchEntry(String[] args, CliRequest parent)
+			throws ParameterException {
+		CliRequest request = new CliRequest();
+		request.parse(args);
+		if (request.help || request.batch != null)
+			throw new ParameterException(
+					"Neither --help nor --batch can be used in batch file");
+		if (request.debug || request.quiet || !request.defines.isEmpty())
+			throw new ParameterException(
+					"Neither --debug, --quiet nor -D can be used in batch file");
+		// Like on single command line, subpackage mapping is not supported yet
+		if (!request.mappings.isEmpty())
+			throw new ParameterException("-M can't be used in batch file");
+		request.strict |= parent.strict;
+		request.printDeps |= parent.printDeps;
+		request.json |= parent.json;
+		if (request.json && request.printDeps)
+			throw new ParameterException(
+					"At most one of --json and --print-deps must be given");
+		if (request.cacheDir == null)
+			request.cacheDir = parent.cacheDir;
+		return request;
+	}
+
+	private JCommander parse(String[] args) {
+		JCommander jcomm = new JCommander(this);
+		jcomm.parse(args);
+		jcomm.setProgramName(P2InstallerApp.class.getName());
+
+		if (help)
+			return jcomm;
+
+		if (debug && quiet)
+			throw new ParameterException(
+					"At most one of --quiet and --debug must be given");
+		if (json && printDeps)
+			throw new ParameterException(
+					"At most one of --json and --print-deps must be given");
+
+		if (batch != null) {
+			if (name != null || root != null || dryRun
+					|| !parameters.isEmpty() || !mappings.isEmpty())
+				throw new ParameterException(
+						"Installation requests must be given in batch file when --batch is used");
+			// Every request would overwrite report of the previous one
+			if (metrics != null)
+				throw new ParameterException(
+						"--metrics must be given for each request in batch file when --batch is used");
+		} else {
+			if (name == null)
+				throw new ParameterException(
+						"The following option is required: --name");
+			if (root != null == dryRun)
+				throw new ParameterException(
+						"Exactly one of --install-root and --dry-run must be given");
+		}
+
+		return jcomm;
+	}
+
 	public List<String> getParameters() {
 		return parameters;
 	}
@@ -106,6 +178,10 @@ class CliRequest {
 		return printDeps;
 	}
 
+	public boolean isJson() {
+		return json;
+	}
+
 	public String getName() {
 		return name;
 	}
@@ -114,7 +190,57 @@ class CliRequest {
 		return root;
 	}
 
+	public String getCacheDir() {
+		return cacheDir;
+	}
+
+	public String getMetrics() {
+		return metrics;
+	}
+
 	public Map<String, String> getMappings() {
 		return mappings;
 	}
+
+	public String getBatch() {
+		return batch;
+	}
+
+	/**
+	 * Split line of batch file into arguments. Arguments are separated by
+	 * whitespace, which can be included in them by quoting with single or
+	 * double quotes, or by escaping with backslash outside of single quotes.
+	 */
+	public static String[] tokenize(String line) throws ParameterException {
+		List<String> args = new LinkedList<>();
+		StringBuilder arg = null;
+		char quote = 0;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quote == 0 && Character.isWhitespace(c)) {
+				if (arg != null)
+					args.add(arg.toString());
+				arg = null;
+				continue;
+			}
+			if (arg == null)
+				arg = new StringBuilder();
+			if (c == quote) {
+				quote = 0;
+			} else if (quote == 0 && (c == '\'' || c == '"')) {
+				quote = c;
+			} else if (c == '\\' && quote != '\'') {
+				if (++i == line.length())
+					throw new ParameterException("Trailing backslash");
+				arg.append(line.charAt(i));
+			} else {
+				arg.append(c);
+			}
+		}
+		if (quote != 0)
+			throw new ParameterException("Unterminated quote");
+		if (arg != null)
+			args.add(arg.toString());
+		return args.toArray(new String[args.size()]);
+	}
 }
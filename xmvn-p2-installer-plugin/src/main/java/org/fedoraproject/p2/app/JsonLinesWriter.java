@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.app;
+
+import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.fedoraproject.p2.installer.Dropin;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationListener;
+
+/**
+ * Writes installation progress as JSON Lines, one record per installed dropin
+ * followed by one record per provide of that dropin. Records are written as
+ * soon as each dropin is installed.
+ */
+class JsonLinesWriter implements EclipseInstallationListener {
+	private final PrintStream out;
+
+	public JsonLinesWriter(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public synchronized void dropinInstalled(Dropin dropin, long duration) {
+		Map<String, Object> record = new LinkedHashMap<>();
+		record.put("type", "dropin");
+		record.put("name", dropin.getId());
+		record.put("path", Paths.get("/").resolve(dropin.getPath()).toString());
+		record.put("timeMillis", duration);
+		write(record);
+
+		for (EclipseArtifact provide : dropin.getOsgiProvides()) {
+			record = new LinkedHashMap<>();
+			record.put("type", "provide");
+			record.put("dropin", dropin.getId());
+			record.put("id", provide.getId());
+			record.put("version", provide.getVersion());
+			record.put("path", provide.getInstalledPath().toString());
+			record.put("requires", provide.getProperties().get("osgi.requires"));
+			record.put("namespace",
+					provide.getProperties().get("osgi.namespace"));
+			record.put("timeMillis", duration);
+			write(record);
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Write exit status of single request of a batch.
+	 */
+	public synchronized void status(String name, int status) {
+		Map<String, Object> record = new LinkedHashMap<>();
+		record.put("type", "status");
+		record.put("name", name);
+		record.put("status", status);
+		write(record);
+		out.flush();
+	}
+
+	private void write(Map<String, Object> record) {
+		StringBuilder sb = new StringBuilder("{");
+		for (Map.Entry<String, Object> entry : record.entrySet()) {
+			if (sb.length() > 1)
+				sb.append(',');
+			appendString(sb, entry.getKey());
+			sb.append(':');
+			Object value = entry.getValue();
+			if (value == null)
+				sb.append("null");
+			else if (value instanceof Number)
+				sb.append(value);
+			else
+				appendString(sb, value.toString());
+		}
+		out.println(sb.append('}'));
+	}
+
+	private static void appendString(StringBuilder sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\')
+				sb.append('\\').append(c);
+			else if (c == '\n')
+				sb.append("\\n");
+			else if (c == '\t')
+				sb.append("\\t");
+			else if (c < 0x20)
+				sb.append(String.format("\\u%04x", (int) c));
+			else
+				sb.append(c);
+		}
+		sb.append('"');
+	}
+}
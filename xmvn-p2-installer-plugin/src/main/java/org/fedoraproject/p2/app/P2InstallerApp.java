@@ -10,6 +10,9 @@
  *******************************************************************************/
 package org.fedoraproject.p2.app;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Set;
 
@@ -20,6 +23,8 @@ import org.fedoraproject.p2.installer.EclipseInstallationResult;
 import org.fedoraproject.p2.installer.EclipseInstaller;
 import org.fedoraproject.p2.installer.EclipseInstallerFactory;
 
+import com.beust.jcommander.ParameterException;
+
 /**
  * @author Mikolaj Izdebski
  */
@@ -36,8 +41,14 @@ public class P2InstallerApp {
 		request.setMainPackageId(cliRequest.getName());
 		if (!cliRequest.isDryRun())
 			request.setBuildRoot(Paths.get(cliRequest.getRoot()));
+		if (cliRequest.getCacheDir() != null)
+			request.setCacheDirectory(Paths.get(cliRequest.getCacheDir()));
+		if (cliRequest.getMetrics() != null)
+			request.setMetricsReport(Paths.get(cliRequest.getMetrics()));
 		for (String arg : cliRequest.getParameters())
 			request.addArtifact(new EclipseArtifact(Paths.get(arg), false, false));
+		if (cliRequest.isJson())
+			request.setListener(new JsonLinesWriter(System.out));
 		if (!cliRequest.getMappings().isEmpty())
 			throw new RuntimeException("FIXME: for now subpackage mapping is disabled in P2InstallerApp");
 
@@ -57,6 +68,56 @@ public class P2InstallerApp {
 		return 0;
 	}
 
+	/**
+	 * Run all installation requests listed in batch file with the same
+	 * installer, printing exit status of each request after its output. Each
+	 * non-empty line not starting with {@code #} is a command line, with
+	 * arguments containing whitespace quoted as in shell.
+	 * Status is printed as JSON Lines record when --json is used.
+	 * 
+	 * @return highest exit status of all requests
+	 */
+	private int runBatch(CliRequest batchRequest, EclipseInstaller installer)
+			throws IOException {
+		JsonLinesWriter json = batchRequest.isJson() ? new JsonLinesWriter(
+				System.out) : null;
+		int status = 0;
+		int lineNumber = 0;
+		for (String line : Files.readAllLines(
+				Paths.get(batchRequest.getBatch()), StandardCharsets.UTF_8)) {
+			lineNumber++;
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+
+			String name = "line " + lineNumber;
+			int requestStatus;
+			try {
+				CliRequest cliRequest = CliRequest.parseBatchEntry(
+						CliRequest.tokenize(line), batchRequest);
+				name = cliRequest.getName();
+				requestStatus = run(cliRequest, installer);
+			} catch (ParameterException e) {
+				System.err.println(e.getMessage() + " at " + name
+						+ " of batch file.");
+				requestStatus = 1;
+			} catch (Exception e) {
+				System.err.println("Exception during installation of " + name);
+				e.printStackTrace();
+				requestStatus = 2;
+			}
+
+			if (json != null) {
+				json.status(name, requestStatus);
+			} else {
+				System.out.println("[" + name + "] status=" + requestStatus);
+				System.out.flush();
+			}
+			status = Math.max(status, requestStatus);
+		}
+		return status;
+	}
+
 	private void printDeps(Set<Dropin> dropins) {
 		for (Dropin dropin : dropins) {
 			for (EclipseArtifact provide : dropin.getOsgiProvides()) {
@@ -71,7 +132,10 @@ public class P2InstallerApp {
 		try {
 			CliRequest cliRequest = new CliRequest(args);
 			EclipseInstaller installer = new EclipseInstallerFactory()
-					.createEmbeddedInstaller();
+					.createInstaller();
+			if (cliRequest.getBatch() != null)
+				System.exit(new P2InstallerApp().runBatch(cliRequest,
+						installer));
 			System.exit(new P2InstallerApp().run(cliRequest, installer));
 		} catch (Throwable e) {
 			System.err.println("Exception during installation");
@@ -0,0 +1,331 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.adaptor.EclipseStarter;
+import org.fedoraproject.p2.EclipseSystemLayout;
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.installer.Dropin;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationRequest;
+import org.fedoraproject.p2.installer.EclipseInstallationResult;
+import org.fedoraproject.p2.installer.EclipseInstaller;
+import org.fedoraproject.p2.installer.EclipseInstallerFactory;
+import org.fedoraproject.xmvn.locator.ServiceLocatorFactory;
+import org.fedoraproject.xmvn.resolver.Resolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Eclipse installer which forwards requests to {@link InstallerDaemon},
+ * starting it first if it is not running yet.
+ * <p>
+ * Each distinct combination of Java runtime, class path and working directory
+ * gets its own daemon. Daemon state, lock and log files are kept in a private
+ * per-user runtime directory.
+ */
+public class DaemonInstallerClient implements EclipseInstaller {
+	private static final Logger logger = LoggerFactory
+			.getLogger(DaemonInstallerClient.class);
+
+	private static final String LOG_LEVEL_PROPERTY = "org.slf4j.simpleLogger.defaultLogLevel";
+
+	// How long to wait for newly spawned daemon to launch Equinox
+	private static final long STARTUP_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+
+	private final long idleTimeout;
+
+	private final Path stateFile;
+
+	private final Path lockFile;
+
+	private final Path logFile;
+
+	/**
+	 * @param idleTimeout
+	 *            time in seconds after which idle daemon exits
+	 */
+	public DaemonInstallerClient(long idleTimeout) throws IOException {
+		this.idleTimeout = idleTimeout;
+
+		Path runtimeDir = getRuntimeDir();
+		String key = computeKey();
+		stateFile = runtimeDir.resolve(key + ".state");
+		lockFile = runtimeDir.resolve(key + ".lock");
+		logFile = runtimeDir.resolve(key + ".log");
+	}
+
+	@Override
+	public EclipseInstallationResult performInstallation(
+			EclipseInstallationRequest request) throws Exception {
+		List<Path> configFiles = request.getConfigFiles();
+		if (configFiles.isEmpty())
+			configFiles = EclipseSystemLayout.getSclConfFiles();
+		List<EclipseArtifact> artifacts = new ArrayList<>(
+				request.getArtifacts());
+
+		// Another attempt is made when the daemon turns out to be stale or it
+		// has just exited
+		for (int attempt = 0; attempt < 3; attempt++) {
+			DaemonState state;
+			try {
+				state = connect();
+			} catch (IOException e) {
+				logger.warn("Unable to use installer daemon, installing in process", e);
+				return installInProcess(request);
+			}
+			Socket socket;
+			try {
+				socket = new Socket(InetAddress.getLoopbackAddress(),
+						state.getPort());
+			} catch (ConnectException e) {
+				logger.debug("Unable to connect to installer daemon", e);
+				state.delete(stateFile);
+				continue;
+			}
+			boolean dropinsReported = false;
+			try {
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(socket.getOutputStream()));
+				out.writeInt(DaemonProtocol.MAGIC);
+				DaemonProtocol.writeString(out, state.getToken());
+				DaemonProtocol.writeRequest(out, request, configFiles);
+				out.flush();
+
+				DataInputStream in = new DataInputStream(
+						new BufferedInputStream(socket.getInputStream()));
+				while (true) {
+					byte frame = in.readByte();
+					if (frame == DaemonProtocol.FRAME_LOG) {
+						byte[] bytes = new byte[in.readInt()];
+						in.readFully(bytes);
+						System.err.write(bytes);
+						System.err.flush();
+					} else if (frame == DaemonProtocol.FRAME_DROPIN) {
+						long duration = in.readLong();
+						Dropin dropin = DaemonProtocol.readDropin(in, artifacts);
+						request.getListener().dropinInstalled(dropin, duration);
+						dropinsReported = true;
+					} else if (frame == DaemonProtocol.FRAME_RESULT) {
+						return DaemonProtocol.readResult(in, artifacts);
+					} else if (frame == DaemonProtocol.FRAME_ERROR) {
+						throw new RuntimeException(
+								"Installation failed in installer daemon:\n"
+										+ DaemonProtocol.readString(in));
+					} else if (frame == DaemonProtocol.FRAME_STALE) {
+						logger.info("Installer daemon is out of date, restarting it");
+						break;
+					} else {
+						throw new IOException(
+								"Unexpected frame from installer daemon: "
+										+ frame);
+					}
+				}
+			} catch (EOFException | SocketException e) {
+				// Dropins which were already reported can't be installed again
+				if (dropinsReported)
+					throw new IOException(
+							"Installer daemon exited in the middle of installation",
+							e);
+				logger.warn("Installer daemon exited unexpectedly, installing in process", e);
+				return installInProcess(request);
+			} finally {
+				socket.close();
+			}
+		}
+
+		logger.warn("Unable to get up-to-date installer daemon, installing in process");
+		return installInProcess(request);
+	}
+
+	private static EclipseInstallationResult installInProcess(
+			EclipseInstallationRequest request) throws Exception {
+		return new EclipseInstallerFactory().createEmbeddedInstaller()
+				.performInstallation(request);
+	}
+
+	/**
+	 * Find running daemon, or spawn a new one.
+	 */
+	private DaemonState connect() throws IOException, InterruptedException {
+		try (FileChannel channel = FileChannel.open(lockFile,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			FileLock lock = channel.lock();
+			try {
+				DaemonState state = DaemonState.read(stateFile);
+				if (state != null
+						&& ProcessHandle.of(state.getPid())
+								.map(ProcessHandle::isAlive).orElse(false))
+					return state;
+				Files.deleteIfExists(stateFile);
+
+				return spawn();
+			} finally {
+				lock.release();
+			}
+		}
+	}
+
+	private DaemonState spawn() throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+				.toString());
+		String logLevel = System.getProperty(LOG_LEVEL_PROPERTY);
+		if (logLevel != null)
+			command.add("-D" + LOG_LEVEL_PROPERTY + "=" + logLevel);
+		command.add("-cp");
+		command.add(String.join(File.pathSeparator, getClassPath()));
+		command.add(InstallerDaemon.class.getName());
+		command.add(stateFile.toString());
+		command.add(Long.toString(idleTimeout));
+
+		logger.info("Starting installer daemon, see {} for its output", logFile);
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.redirectInput(ProcessBuilder.Redirect.from(new File("/dev/null")));
+		builder.redirectOutput(ProcessBuilder.Redirect.appendTo(logFile.toFile()));
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+
+		long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT;
+		while (System.currentTimeMillis() < deadline) {
+			DaemonState state = DaemonState.read(stateFile);
+			if (state != null && state.getPid() == process.pid())
+				return state;
+			if (process.waitFor(100, TimeUnit.MILLISECONDS))
+				throw new IOException("Installer daemon exited with status "
+						+ process.exitValue() + ", see " + logFile);
+		}
+
+		process.destroy();
+		throw new IOException("Installer daemon failed to start in time");
+	}
+
+	/**
+	 * Get private directory for daemon files, creating it if needed.
+	 */
+	private static Path getRuntimeDir() throws IOException {
+		String xdgRuntimeDir = System.getenv("XDG_RUNTIME_DIR");
+		Path dir;
+		if (xdgRuntimeDir != null && !xdgRuntimeDir.isEmpty())
+			dir = Paths.get(xdgRuntimeDir, "fedora-p2");
+		else
+			dir = Paths.get(System.getProperty("java.io.tmpdir"), "fedora-p2-"
+					+ System.getProperty("user.name"));
+
+		if (!Files.isDirectory(dir))
+			Files.createDirectories(dir, PosixFilePermissions
+					.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+
+		// Directory in shared location could have been created by someone else
+		PosixFileAttributes attributes = Files.readAttributes(dir,
+				PosixFileAttributes.class);
+		Set<PosixFilePermission> permissions = attributes.permissions();
+		if (!attributes.owner().getName().equals(System.getProperty("user.name"))
+				|| !PosixFilePermissions.fromString("rwx------").containsAll(
+						permissions))
+			throw new IOException("Insecure installer daemon directory " + dir);
+
+		return dir;
+	}
+
+	/**
+	 * Compute key identifying daemons able to serve this client.
+	 */
+	private static String computeKey() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(System.getProperty("java.home")).append('\n');
+		sb.append(Paths.get("").toAbsolutePath()).append('\n');
+		for (String entry : getClassPath()) {
+			Path path = Paths.get(entry);
+			sb.append(entry);
+			if (Files.exists(path))
+				sb.append(' ').append(Files.getLastModifiedTime(path).toMillis())
+						.append(' ').append(Files.size(path));
+			sb.append('\n');
+		}
+
+		return P2Utils.sha256(sb.toString()).substring(0, 32);
+	}
+
+	/**
+	 * Get class path for the daemon process. XMvn loads plugins in their own
+	 * class loaders, so JVM class path alone is not enough.
+	 */
+	private static Set<String> getClassPath() {
+		Set<String> classPath = new LinkedHashSet<>();
+
+		for (Class<?> clazz : new Class<?>[] { InstallerDaemon.class,
+				EclipseInstaller.class, EclipseStarter.class, Resolver.class,
+				ServiceLocatorFactory.class, LoggerFactory.class }) {
+			CodeSource codeSource = clazz.getProtectionDomain()
+					.getCodeSource();
+			if (codeSource == null)
+				continue;
+			try {
+				classPath.add(Paths.get(codeSource.getLocation().toURI())
+						.toString());
+			} catch (URISyntaxException | IllegalArgumentException e) {
+				// Not a local file
+			}
+		}
+
+		for (ClassLoader loader = DaemonInstallerClient.class.getClassLoader(); loader != null; loader = loader
+				.getParent()) {
+			if (loader instanceof URLClassLoader) {
+				for (URL url : ((URLClassLoader) loader).getURLs()) {
+					try {
+						classPath.add(Paths.get(url.toURI()).toString());
+					} catch (URISyntaxException | IllegalArgumentException e) {
+						// Not a local file
+					}
+				}
+			}
+		}
+
+		String javaClassPath = System.getProperty("java.class.path");
+		if (javaClassPath != null && !javaClassPath.isEmpty()) {
+			for (String entry : javaClassPath.split(File.pathSeparator))
+				classPath.add(entry);
+		}
+
+		return classPath;
+	}
+}
@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.daemon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.fedoraproject.p2.installer.Dropin;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationRequest;
+import org.fedoraproject.p2.installer.EclipseInstallationResult;
+
+/**
+ * Wire format used between {@link DaemonInstallerClient} and
+ * {@link InstallerDaemon}.
+ * <p>
+ * Client sends a header and a request, then daemon replies with any number of
+ * log and dropin frames followed by exactly one result, error or stale frame.
+ * Dropin frames are sent only if the client has an installation listener.
+ * Provides refer to request artifacts by their index, so that the client can
+ * update its own artifact objects.
+ */
+final class DaemonProtocol {
+	static final int MAGIC = 0x50324431;
+
+	static final byte FRAME_LOG = 'L';
+
+	static final byte FRAME_DROPIN = 'D';
+
+	static final byte FRAME_RESULT = 'R';
+
+	static final byte FRAME_ERROR = 'E';
+
+	static final byte FRAME_STALE = 'S';
+
+	static final String REPOS_PROPERTY = "fedora.p2.repos";
+
+	// Authentication token is 32 random bytes in hexadecimal
+	static final int TOKEN_LENGTH = 64;
+
+	// Upper bounds guarding against allocating memory for corrupted frames
+	private static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+	private static final int MAX_COUNT = 1024 * 1024;
+
+	private DaemonProtocol() {
+	}
+
+	/**
+	 * Read authentication token sent by the client and compare it with the
+	 * expected one in constant time.
+	 */
+	static boolean readToken(DataInputStream in, String token)
+			throws IOException {
+		String received = readString(in, TOKEN_LENGTH);
+		return received != null
+				&& MessageDigest.isEqual(
+						token.getBytes(StandardCharsets.UTF_8),
+						received.getBytes(StandardCharsets.UTF_8));
+	}
+
+	static void writeRequest(DataOutputStream out,
+			EclipseInstallationRequest request, List<Path> configFiles)
+			throws IOException {
+		writeString(out, request.getMainPackageId());
+		writePath(out, request.getBuildRoot());
+		writePath(out, request.getCacheDirectory());
+		writePath(out, request.getMetricsReport());
+		out.writeBoolean(request.ignoreOptional());
+		out.writeBoolean(request.getListener() != null);
+		writeString(out, System.getProperty(REPOS_PROPERTY));
+
+		out.writeInt(configFiles.size());
+		for (Path configFile : configFiles)
+			writePath(out, configFile);
+
+		out.writeInt(request.getArtifacts().size());
+		for (EclipseArtifact artifact : request.getArtifacts()) {
+			writePath(out, artifact.getPath());
+			out.writeBoolean(artifact.isFeature());
+			out.writeBoolean(artifact.isNative());
+			writeString(out, artifact.getTargetPackage());
+		}
+	}
+
+	/**
+	 * Read request sent by the client.
+	 *
+	 * @param artifacts
+	 *            list to which request artifacts are added in wire order
+	 * @return request, together with value of {@link #REPOS_PROPERTY} in
+	 *         client process and whether client listens for installed dropins
+	 */
+	static Request readRequest(DataInputStream in, List<EclipseArtifact> artifacts)
+			throws IOException {
+		EclipseInstallationRequest request = new EclipseInstallationRequest();
+		request.setMainPackageId(readString(in));
+		request.setBuildRoot(readPath(in));
+		request.setCacheDirectory(readPath(in));
+		request.setMetricsReport(readPath(in));
+		request.setIgnoreOptional(in.readBoolean());
+		boolean listening = in.readBoolean();
+		String repos = readString(in);
+
+		int nConfigFiles = readCount(in);
+		for (int i = 0; i < nConfigFiles; i++)
+			request.addConfigFile(readPath(in));
+
+		int nArtifacts = readCount(in);
+		for (int i = 0; i < nArtifacts; i++) {
+			Path path = readPath(in);
+			boolean isFeature = in.readBoolean();
+			boolean isNative = in.readBoolean();
+			EclipseArtifact artifact = new EclipseArtifact(path, isFeature,
+					isNative);
+			artifact.setTargetPackage(readString(in));
+			request.addArtifact(artifact);
+			artifacts.add(artifact);
+		}
+
+		return new Request(request, repos, listening);
+	}
+
+	static Map<EclipseArtifact, Integer> indexArtifacts(
+			List<EclipseArtifact> artifacts) {
+		Map<EclipseArtifact, Integer> indices = new IdentityHashMap<>();
+		for (EclipseArtifact artifact : artifacts)
+			indices.put(artifact, indices.size());
+		return indices;
+	}
+
+	static void writeResult(DataOutputStream out,
+			EclipseInstallationResult result,
+			Map<EclipseArtifact, Integer> indices) throws IOException {
+		out.writeInt(result.getDropins().size());
+		for (Dropin dropin : result.getDropins())
+			writeDropin(out, dropin, indices);
+	}
+
+	/**
+	 * Read result sent by the daemon, updating given request artifacts with
+	 * information about provides.
+	 */
+	static EclipseInstallationResult readResult(DataInputStream in,
+			List<EclipseArtifact> artifacts) throws IOException {
+		Set<Dropin> dropins = new LinkedHashSet<>();
+		int nDropins = readCount(in);
+		for (int i = 0; i < nDropins; i++)
+			dropins.add(readDropin(in, artifacts));
+		return new EclipseInstallationResult(dropins);
+	}
+
+	static void writeDropin(DataOutputStream out, Dropin dropin,
+			Map<EclipseArtifact, Integer> indices) throws IOException {
+		writeString(out, dropin.getId());
+		writePath(out, dropin.getPath());
+		out.writeInt(dropin.getOsgiProvides().size());
+		for (EclipseArtifact provide : dropin.getOsgiProvides()) {
+			out.writeInt(indices.get(provide));
+			writeString(out, provide.getId());
+			writeString(out, provide.getVersion());
+			writePath(out, provide.getInstalledPath());
+			Map<String, String> properties = provide.getProperties();
+			out.writeInt(properties.size());
+			for (Map.Entry<String, String> entry : properties.entrySet()) {
+				writeString(out, entry.getKey());
+				writeString(out, entry.getValue());
+			}
+		}
+	}
+
+	static Dropin readDropin(DataInputStream in, List<EclipseArtifact> artifacts)
+			throws IOException {
+		Dropin dropin = new Dropin(readString(in), readPath(in));
+		int nProvides = readCount(in);
+		for (int i = 0; i < nProvides; i++) {
+			EclipseArtifact provide = artifacts.get(in.readInt());
+			provide.setId(readString(in));
+			provide.setVersion(readString(in));
+			provide.setInstalledPath(readPath(in));
+			int nProperties = readCount(in);
+			for (int j = 0; j < nProperties; j++)
+				provide.setProperty(readString(in), readString(in));
+			dropin.addProvide(provide);
+		}
+		return dropin;
+	}
+
+	static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		return readString(in, MAX_STRING_LENGTH);
+	}
+
+	private static String readString(DataInputStream in, int maxLength)
+			throws IOException {
+		int length = in.readInt();
+		if (length == -1)
+			return null;
+		if (length < 0 || length > maxLength)
+			throw new IOException("Invalid string length " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int readCount(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > MAX_COUNT)
+			throw new IOException("Invalid element count " + count);
+		return count;
+	}
+
+	private static void writePath(DataOutputStream out, Path path)
+			throws IOException {
+		writeString(out, path != null ? path.toString() : null);
+	}
+
+	private static Path readPath(DataInputStream in) throws IOException {
+		String path = readString(in);
+		return path != null ? Paths.get(path) : null;
+	}
+
+	static class Request {
+		final EclipseInstallationRequest request;
+
+		final String repos;
+
+		final boolean listening;
+
+		Request(EclipseInstallationRequest request, String repos,
+				boolean listening) {
+			this.request = request;
+			this.repos = repos;
+			this.listening = listening;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.daemon;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Contents of daemon state file, which tells clients how to reach a running
+ * daemon. The file is readable only by its owner, as the token it contains
+ * authenticates clients.
+ */
+class DaemonState {
+	private final int port;
+
+	private final String token;
+
+	private final long pid;
+
+	DaemonState(int port, String token, long pid) {
+		this.port = port;
+		this.token = token;
+		this.pid = pid;
+	}
+
+	int getPort() {
+		return port;
+	}
+
+	String getToken() {
+		return token;
+	}
+
+	long getPid() {
+		return pid;
+	}
+
+	/**
+	 * Read state file.
+	 *
+	 * @return daemon state, or {@code null} if there is no state file or it
+	 *         is malformed
+	 */
+	static DaemonState read(Path stateFile) throws IOException {
+		try {
+			List<String> lines = Files.readAllLines(stateFile,
+					StandardCharsets.UTF_8);
+			if (lines.size() != 3)
+				return null;
+			return new DaemonState(Integer.parseInt(lines.get(0)),
+					lines.get(1), Long.parseLong(lines.get(2)));
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	void write(Path stateFile) throws IOException {
+		Path tempFile = Files.createTempFile(stateFile.getParent(), ".state-",
+				"", PosixFilePermissions.asFileAttribute(PosixFilePermissions
+						.fromString("rw-------")));
+		try {
+			Files.write(tempFile, Arrays.asList(Integer.toString(port), token,
+					Long.toString(pid)), StandardCharsets.UTF_8);
+			Files.move(tempFile, stateFile, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Remove state file, but only if it still describes this daemon.
+	 */
+	void delete(Path stateFile) throws IOException {
+		DaemonState current = read(stateFile);
+		if (current != null && current.pid == pid
+				&& current.token.equals(token))
+			Files.deleteIfExists(stateFile);
+	}
+}
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.fedoraproject.p2.P2Utils;
+import org.fedoraproject.p2.installer.EclipseArtifact;
+import org.fedoraproject.p2.installer.EclipseInstallationResult;
+import org.fedoraproject.p2.installer.EclipseInstaller;
+import org.fedoraproject.p2.osgi.OSGiConfigurator;
+import org.fedoraproject.p2.osgi.impl.DefaultOSGiConfigurator;
+import org.fedoraproject.p2.osgi.impl.DefaultOSGiFramework;
+import org.fedoraproject.p2.osgi.impl.DefaultOSGiServiceLocator;
+import org.fedoraproject.xmvn.locator.ServiceLocatorFactory;
+import org.fedoraproject.xmvn.resolver.Resolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived process hosting Equinox and the Eclipse installer service, so
+ * that it does not need to be launched for every installation.
+ * <p>
+ * Daemon listens on a loopback TCP port, which is published together with an
+ * authentication token in a state file readable only by the owner. Requests
+ * are processed one at a time. Daemon exits after it has been idle for given
+ * time, or when any of the OSGi bundles it was launched with changes.
+ *
+ * @see DaemonInstallerClient
+ */
+public class InstallerDaemon {
+	private final Logger logger = LoggerFactory.getLogger(InstallerDaemon.class);
+
+	// Maximal time to wait for data from connected client, in ms
+	private static final int READ_TIMEOUT = 30000;
+
+	private final Path stateFile;
+
+	private final long idleTimeout;
+
+	private final Map<Path, Long> bundleTimestamps = new LinkedHashMap<>();
+
+	private EclipseInstaller installer;
+
+	private DaemonState state;
+
+	public InstallerDaemon(Path stateFile, long idleTimeout) {
+		this.stateFile = stateFile;
+		this.idleTimeout = idleTimeout;
+	}
+
+	public void run() throws Exception {
+		OSGiConfigurator configurator = new RecordingConfigurator(
+				new DefaultOSGiConfigurator(new ServiceLocatorFactory()
+						.createServiceLocator().getService(Resolver.class)));
+		installer = new DefaultOSGiServiceLocator(new DefaultOSGiFramework(
+				configurator)).getService(EclipseInstaller.class);
+
+		try (ServerSocket server = new ServerSocket(0, 50,
+				InetAddress.getLoopbackAddress())) {
+			server.setSoTimeout((int) Math.min(idleTimeout, Integer.MAX_VALUE));
+
+			byte[] random = new byte[DaemonProtocol.TOKEN_LENGTH / 2];
+			new SecureRandom().nextBytes(random);
+			state = new DaemonState(server.getLocalPort(), P2Utils.toHex(random),
+					ProcessHandle.current().pid());
+			state.write(stateFile);
+			logger.info("Installer daemon listening on port {}",
+					server.getLocalPort());
+
+			try {
+				while (true) {
+					Socket client;
+					try {
+						client = server.accept();
+					} catch (SocketTimeoutException e) {
+						logger.info("Installer daemon idle for {} seconds, exiting",
+								TimeUnit.MILLISECONDS.toSeconds(idleTimeout));
+						break;
+					}
+					try (Socket socket = client) {
+						socket.setSoTimeout(READ_TIMEOUT);
+						if (!handle(socket))
+							break;
+					} catch (SocketTimeoutException e) {
+						logger.warn("Dropping client connection which timed out");
+					} catch (EOFException e) {
+						logger.debug("Client disconnected prematurely", e);
+					} catch (IOException e) {
+						logger.warn("Failed to handle client connection", e);
+					}
+				}
+			} finally {
+				state.delete(stateFile);
+			}
+		}
+	}
+
+	/**
+	 * Serve single client connection.
+	 *
+	 * @return {@code false} if daemon should exit
+	 */
+	private boolean handle(Socket socket) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				socket.getInputStream()));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				socket.getOutputStream()));
+
+		if (in.readInt() != DaemonProtocol.MAGIC
+				|| !DaemonProtocol.readToken(in, state.getToken())) {
+			logger.warn("Rejecting unauthenticated connection");
+			return true;
+		}
+
+		List<EclipseArtifact> artifacts = new ArrayList<>();
+		DaemonProtocol.Request request = DaemonProtocol.readRequest(in,
+				artifacts);
+
+		if (!isCurrent()) {
+			logger.info("OSGi bundles have changed, exiting");
+			out.writeByte(DaemonProtocol.FRAME_STALE);
+			out.flush();
+			return false;
+		}
+
+		Map<EclipseArtifact, Integer> indices = DaemonProtocol
+				.indexArtifacts(artifacts);
+		if (request.listening) {
+			request.request.setListener((dropin, duration) -> {
+				try {
+					synchronized (out) {
+						out.writeByte(DaemonProtocol.FRAME_DROPIN);
+						out.writeLong(duration);
+						DaemonProtocol.writeDropin(out, dropin, indices);
+						out.flush();
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		}
+
+		if (request.repos != null)
+			System.setProperty(DaemonProtocol.REPOS_PROPERTY, request.repos);
+		else
+			System.clearProperty(DaemonProtocol.REPOS_PROPERTY);
+
+		// Forward everything the installer prints to the client
+		PrintStream stdout = System.out;
+		PrintStream stderr = System.err;
+		PrintStream log = new PrintStream(new LogFrameStream(out), true,
+				"UTF-8");
+		System.setOut(log);
+		System.setErr(log);
+		try {
+			EclipseInstallationResult result = installer
+					.performInstallation(request.request);
+			log.flush();
+			synchronized (out) {
+				out.writeByte(DaemonProtocol.FRAME_RESULT);
+				DaemonProtocol.writeResult(out, result, indices);
+			}
+		} catch (Exception e) {
+			StringWriter trace = new StringWriter();
+			e.printStackTrace(new PrintWriter(trace));
+			log.flush();
+			synchronized (out) {
+				out.writeByte(DaemonProtocol.FRAME_ERROR);
+				DaemonProtocol.writeString(out, trace.toString());
+			}
+		} finally {
+			System.setOut(stdout);
+			System.setErr(stderr);
+		}
+		out.flush();
+
+		return true;
+	}
+
+	/**
+	 * Check whether OSGi bundles this daemon was launched with are still the
+	 * same as those installed on the system.
+	 */
+	private boolean isCurrent() {
+		for (Map.Entry<Path, Long> entry : bundleTimestamps.entrySet()) {
+			try {
+				if (Files.getLastModifiedTime(entry.getKey()).toMillis() != entry
+						.getValue())
+					return false;
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Configurator which remembers modification times of bundles it returns.
+	 */
+	private class RecordingConfigurator implements OSGiConfigurator {
+		private final OSGiConfigurator delegate;
+
+		RecordingConfigurator(OSGiConfigurator delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public Collection<Path> getBundles() {
+			Collection<Path> bundles = delegate.getBundles();
+			for (Path bundle : bundles) {
+				try {
+					bundleTimestamps.put(bundle, Files
+							.getLastModifiedTime(bundle).toMillis());
+				} catch (IOException e) {
+					bundleTimestamps.put(bundle, -1L);
+				}
+			}
+			return bundles;
+		}
+
+		@Override
+		public Collection<String> getExportedPackages() {
+			return delegate.getExportedPackages();
+		}
+	}
+
+	/**
+	 * Output stream sending everything written to it as log frames.
+	 */
+	private static class LogFrameStream extends OutputStream {
+		private final DataOutputStream out;
+
+		LogFrameStream(DataOutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return;
+			synchronized (out) {
+				out.writeByte(DaemonProtocol.FRAME_LOG);
+				out.writeInt(len);
+				out.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (out) {
+				out.flush();
+			}
+		}
+	}
+
+	public static void main(String[] args) {
+		try {
+			Path stateFile = Paths.get(args[0]);
+			long idleTimeout = TimeUnit.SECONDS.toMillis(Long
+					.parseLong(args[1]));
+			new InstallerDaemon(stateFile, idleTimeout).run();
+			System.exit(0);
+		} catch (Throwable e) {
+			System.err.println("Installer daemon failed");
+			e.printStackTrace();
+			System.exit(2);
+		}
+	}
+}
@@ -10,16 +10,50 @@
  *******************************************************************************/
 package org.fedoraproject.p2.installer;
 
+import java.io.IOException;
+
+import org.fedoraproject.p2.daemon.DaemonInstallerClient;
 import org.fedoraproject.p2.osgi.impl.DefaultOSGiConfigurator;
 import org.fedoraproject.p2.osgi.impl.DefaultOSGiFramework;
 import org.fedoraproject.p2.osgi.impl.DefaultOSGiServiceLocator;
 import org.fedoraproject.xmvn.locator.ServiceLocatorFactory;
 import org.fedoraproject.xmvn.resolver.Resolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * @author Mikolaj Izdebski
  */
 public class EclipseInstallerFactory {
+	private static final String DAEMON_PROPERTY = "fedora.p2.daemon";
+
+	private static final String DAEMON_IDLE_TIMEOUT_PROPERTY = "fedora.p2.daemon.idleTimeout";
+
+	// Seconds
+	private static final long DEFAULT_DAEMON_IDLE_TIMEOUT = 300;
+
+	private final Logger logger = LoggerFactory
+			.getLogger(EclipseInstallerFactory.class);
+
+	/**
+	 * Create installer, using installer daemon if it is enabled with
+	 * {@code fedora.p2.daemon} system property.
+	 */
+	public EclipseInstaller createInstaller() {
+		if (Boolean.getBoolean(DAEMON_PROPERTY)) {
+			try {
+				return createDaemonInstaller();
+			} catch (IOException e) {
+				logger.warn("Unable to use installer daemon", e);
+			}
+		}
+		return createEmbeddedInstaller();
+	}
+
+	public EclipseInstaller createDaemonInstaller() throws IOException {
+		return new DaemonInstallerClient(Long.getLong(
+				DAEMON_IDLE_TIMEOUT_PROPERTY, DEFAULT_DAEMON_IDLE_TIMEOUT));
+	}
 
 	public EclipseInstaller createEmbeddedInstaller() {
 		return new DefaultOSGiServiceLocator(
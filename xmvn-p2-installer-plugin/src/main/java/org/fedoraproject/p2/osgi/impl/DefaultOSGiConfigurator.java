@@ -10,12 +10,19 @@
  *******************************************************************************/
 package org.fedoraproject.p2.osgi.impl;
 
-import java.io.BufferedOutputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -34,6 +41,7 @@ import org.fedoraproject.xmvn.artifact.DefaultArtifact;
 import org.fedoraproject.xmvn.resolver.ResolutionRequest;
 import org.fedoraproject.xmvn.resolver.Resolver;
 
+import org.fedoraproject.p2.P2Utils;
 import org.fedoraproject.p2.osgi.OSGiConfigurator;
 
 /**
@@ -52,6 +60,9 @@ public class DefaultOSGiConfigurator implements OSGiConfigurator {
 	private static final Artifact BUNDLES_EXTERNAL_ZIP = new DefaultArtifact(
 			"org.eclipse.tycho", "tycho-bundles-external", "zip", "SYSTEM");
 
+	// Lists extracted bundles relative to extraction directory
+	private static final String BUNDLE_MANIFEST = "bundles.txt";
+
 	private final Resolver resolver;
 
 	public DefaultOSGiConfigurator(Resolver resolver) {
@@ -102,8 +113,14 @@ public class DefaultOSGiConfigurator implements OSGiConfigurator {
 	}
 
 	/**
-	 * Extracts all OSGi bundles contained within the given zip file and returns
-	 * them in a list.
+	 * Returns OSGi bundles contained within the given zip file, extracting
+	 * them first unless they were already extracted by an earlier run.
+	 * <p>
+	 * Extracted bundles are kept in a per-user cache directory keyed by hash of
+	 * the zip file. Each extraction is done in a temporary directory which is
+	 * then atomically renamed, so concurrent builds can safely share the cache.
+	 * Damaged cache directories are replaced; if that is not possible, bundles
+	 * are used from the temporary directory, which is removed on exit.
 	 * 
 	 * @param bundlesZip
 	 *            path to the zip on the filesystem
@@ -112,16 +129,103 @@ public class DefaultOSGiConfigurator implements OSGiConfigurator {
 	 *             if there was an IO error during extraction
 	 */
 	private List<String> getBundlesFromZip(Path bundlesZip) throws IOException {
-		Path dir = Files.createTempDirectory(BUNDLES_EXTERNAL.getArtifactId());
+		Path cacheDir = getCacheDir().resolve(
+				BUNDLES_EXTERNAL.getArtifactId());
+		Path dir = cacheDir.resolve(hash(bundlesZip));
+
+		List<String> bundleList = readBundleManifest(dir);
+		if (bundleList != null) {
+			logger.debug("Using bundles extracted in: {}", dir);
+			return bundleList;
+		}
+
+		Path tempDir;
+		try {
+			Files.createDirectories(cacheDir);
+			tempDir = Files.createTempDirectory(cacheDir, ".tmp-");
+		} catch (IOException e) {
+			logger.warn("Unable to use bundle cache {}", cacheDir, e);
+			tempDir = Files.createTempDirectory(BUNDLES_EXTERNAL.getArtifactId());
+			logger.info("Extracting bundles into: {}", tempDir);
+			deleteOnExit(tempDir);
+			return extractBundles(bundlesZip, tempDir);
+		}
+
 		logger.info("Extracting bundles into: {}", dir);
+		List<String> extracted;
+		try {
+			extracted = extractBundles(bundlesZip, tempDir);
+		} catch (IOException e) {
+			delete(tempDir);
+			throw e;
+		}
+
+		if (moveIntoCache(tempDir, dir)) {
+			// Removes our own copy if bundles were extracted concurrently
+			delete(tempDir);
+			bundleList = readBundleManifest(dir);
+			if (bundleList != null)
+				return bundleList;
+		}
+
+		logger.warn("Unable to store bundles in cache {}, using them from {}",
+				dir, tempDir);
+		deleteOnExit(tempDir);
+		return extracted;
+	}
+
+	/**
+	 * Atomically moves freshly extracted bundles into cache, replacing damaged
+	 * cache directory if there is one.
+	 * 
+	 * @return {@code true} if the cache directory contains complete bundles
+	 *         afterwards, either ours or extracted concurrently by another
+	 *         process
+	 */
+	private boolean moveIntoCache(Path tempDir, Path dir) {
+		for (int attempt = 0; attempt < 2; attempt++) {
+			try {
+				if (P2Utils.renameDirectory(tempDir, dir))
+					return true;
+				if (readBundleManifest(dir) != null) {
+					logger.debug("Bundles were already extracted into: {}", dir);
+					return true;
+				}
+				logger.warn("Replacing damaged bundle cache {}", dir);
+				Path stale = dir.resolveSibling(".stale-"
+						+ tempDir.getFileName());
+				Files.move(dir, stale, StandardCopyOption.ATOMIC_MOVE);
+				try {
+					delete(stale);
+				} catch (IOException e) {
+					logger.debug("Unable to remove {}", stale, e);
+				}
+			} catch (IOException e) {
+				logger.debug("Unable to move bundles into {}", dir, e);
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Extracts all jar files from given zip into given directory and writes
+	 * bundle manifest listing them.
+	 */
+	private List<String> extractBundles(Path bundlesZip, Path dir)
+			throws IOException {
 		List<String> bundleList = new ArrayList<>();
-		try (ZipInputStream zin = new ZipInputStream(
-				Files.newInputStream(bundlesZip))) {
+		List<String> manifest = new ArrayList<>();
+		try (ZipInputStream zin = new ZipInputStream(new BufferedInputStream(
+				Files.newInputStream(bundlesZip)))) {
 			ZipEntry entry;
 			String name;
 			while ((entry = zin.getNextEntry()) != null) {
 				name = entry.getName();
-				Path path = dir.resolve(Paths.get(name));
+				Path path = dir.resolve(Paths.get(name)).normalize();
+				if (!path.startsWith(dir))
+					throw new IOException("Illegal entry " + name + " in "
+							+ bundlesZip);
 				// create dirs as we encounter them, but create dirs for files
 				// too since zip files may not always have the dirs first
 				if (entry.isDirectory()) {
@@ -132,21 +236,92 @@ public class DefaultOSGiConfigurator implements OSGiConfigurator {
 				}
 				// extract jar files only
 				if (path.getFileName().toString().endsWith(".jar")) {
-					byte[] buffer = new byte[1024];
-					try (BufferedOutputStream out = new BufferedOutputStream(
-							Files.newOutputStream(path))) {
-						int count = -1;
-						while ((count = zin.read(buffer)) != -1) {
-							out.write(buffer, 0, count);
-						}
-					}
+					Files.copy(zin, path, StandardCopyOption.REPLACE_EXISTING);
 					bundleList.add(path.toString());
+					manifest.add(dir.relativize(path).toString());
 				}
 			}
 		}
+		// Written last, its presence marks complete extraction
+		Files.write(dir.resolve(BUNDLE_MANIFEST), manifest,
+				StandardCharsets.UTF_8);
 		return bundleList;
 	}
 
+	/**
+	 * Reads manifest of previously extracted bundles.
+	 * 
+	 * @return the list of paths to the extracted bundles, or {@code null} if
+	 *         bundles were not extracted into given directory yet
+	 */
+	private List<String> readBundleManifest(Path dir) throws IOException {
+		Path manifest = dir.resolve(BUNDLE_MANIFEST);
+		if (!Files.isRegularFile(manifest))
+			return null;
+		List<String> bundleList = new ArrayList<>();
+		for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+			Path path = dir.resolve(line);
+			if (!Files.isRegularFile(path)) {
+				logger.debug("Cached bundle {} is missing", path);
+				return null;
+			}
+			bundleList.add(path.toString());
+		}
+		return bundleList;
+	}
+
+	static Path getCacheDir() {
+		String xdgCacheHome = System.getenv("XDG_CACHE_HOME");
+		if (xdgCacheHome != null && !xdgCacheHome.isEmpty())
+			return Paths.get(xdgCacheHome, "fedora-p2");
+		return Paths.get(System.getProperty("user.home"), ".cache", "fedora-p2");
+	}
+
+	private static String hash(Path file) throws IOException {
+		MessageDigest digest = P2Utils.newSha256();
+		try (InputStream is = new DigestInputStream(Files.newInputStream(file),
+				digest)) {
+			byte[] buffer = new byte[65536];
+			while (is.read(buffer) != -1)
+				;
+		}
+		return P2Utils.toHex(digest.digest());
+	}
+
+	/**
+	 * Removes given directory when JVM exits, as bundles extracted into it are
+	 * used for the whole lifetime of the OSGi framework.
+	 */
+	private static void deleteOnExit(Path dir) {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			try {
+				delete(dir);
+			} catch (IOException e) {
+				// Nothing to do about it at this point
+			}
+		}));
+	}
+
+	private static void delete(Path dir) throws IOException {
+		if (!Files.exists(dir))
+			return;
+		Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file,
+					BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path d, IOException e)
+					throws IOException {
+				Files.delete(d);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
 	@Override
 	public Collection<String> getExportedPackages() {
 		return Arrays.asList("org.fedoraproject.p2.installer", "org.slf4j");
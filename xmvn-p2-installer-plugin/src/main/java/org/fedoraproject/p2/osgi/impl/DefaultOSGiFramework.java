@@ -10,7 +10,14 @@
  *******************************************************************************/
 package org.fedoraproject.p2.osgi.impl;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -18,10 +25,14 @@ import java.util.stream.Collectors;
 import org.eclipse.core.runtime.adaptor.EclipseStarter;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleException;
+import org.osgi.framework.Constants;
+import org.osgi.framework.SynchronousBundleListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.fedoraproject.p2.P2Utils;
 import org.fedoraproject.p2.osgi.OSGiConfigurator;
 import org.fedoraproject.p2.osgi.OSGiFramework;
 
@@ -34,8 +45,18 @@ public class DefaultOSGiFramework implements OSGiFramework {
 
 	private final OSGiConfigurator equinoxLocator;
 
+	// Present in configuration area after Equinox was successfully launched
+	// with it
+	private static final String CONFIGURATION_MARKER = ".fedora-p2-configured";
+
 	private BundleContext bundleContext;
 
+	// Held for the lifetime of the framework to prevent concurrent use of the
+	// same configuration area
+	private FileChannel configurationChannel;
+
+	private FileLock configurationLock;
+
 	public DefaultOSGiFramework(OSGiConfigurator equinoxLocator) {
 		this.equinoxLocator = equinoxLocator;
 	}
@@ -48,14 +69,27 @@ public class DefaultOSGiFramework implements OSGiFramework {
 			properties.put("eclipse.consoleLog", "true");
 		}
 
+		Collection<Path> bundles = equinoxLocator.getBundles();
+		Collection<String> exportedPackages = equinoxLocator
+				.getExportedPackages();
+
 		properties.put("osgi.bundles",
-				equinoxLocator.getBundles().stream()
+				bundles.stream()
 					.map(Path::toString)
 					.collect(Collectors.joining(",")));
 
 		properties.put("osgi.parentClassloader", "fwk");
 		properties.put("org.osgi.framework.system.packages.extra",
-				String.join(",", equinoxLocator.getExportedPackages()));
+				String.join(",", exportedPackages));
+
+		Path configurationArea = getConfigurationArea(bundles,
+				exportedPackages);
+		if (configurationArea != null) {
+			properties.put("osgi.configuration.area", configurationArea
+					.toUri().toString());
+			if (!Files.exists(configurationArea.resolve(CONFIGURATION_MARKER)))
+				properties.put("osgi.clean", "true");
+		}
 
 		logger.info("Launching Equinox...");
 		System.setProperty("osgi.framework.useSystemProperties", "false");
@@ -70,6 +104,23 @@ public class DefaultOSGiFramework implements OSGiFramework {
 			throw new RuntimeException("Failed to launch Equinox");
 		}
 
+		// Framework writes its state to configuration area until it is stopped
+		if (configurationLock != null)
+			context.addBundleListener((SynchronousBundleListener) event -> {
+				if (event.getBundle().getBundleId() == Constants.SYSTEM_BUNDLE_ID
+						&& event.getType() == BundleEvent.STOPPED)
+					releaseConfigurationLock();
+			});
+
+		if (configurationArea != null) {
+			try {
+				Files.write(configurationArea.resolve(CONFIGURATION_MARKER),
+						new byte[0]);
+			} catch (IOException e) {
+				logger.debug("Unable to mark configuration area as usable", e);
+			}
+		}
+
 		tryActivateBundle(context, "org.apache.felix.scr");
 		tryActivateBundle(context, "org.eclipse.equinox.registry");
 		tryActivateBundle(context, "org.eclipse.core.net");
@@ -78,6 +129,78 @@ public class DefaultOSGiFramework implements OSGiFramework {
 		return context;
 	}
 
+	/**
+	 * Get persistent configuration area for given framework setup, so that
+	 * Equinox can reuse bundle cache and resolver state from earlier launches.
+	 * Configuration area is keyed by hash of the setup and it is cleaned only
+	 * when it is used for the first time, or when previous launch failed.
+	 * 
+	 * @return configuration area, or {@code null} if Equinox should use its
+	 *         default one
+	 */
+	private Path getConfigurationArea(Collection<Path> bundles,
+			Collection<String> exportedPackages) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(System.getProperty("java.home")).append('\n');
+		sb.append(System.getProperty("java.version")).append('\n');
+		sb.append(String.join(",", exportedPackages)).append('\n');
+		Path configurationArea;
+		try {
+			for (Path bundle : bundles) {
+				sb.append(bundle).append(' ')
+						.append(Files.getLastModifiedTime(bundle).toMillis())
+						.append(' ').append(Files.size(bundle)).append('\n');
+			}
+
+			Path dir = DefaultOSGiConfigurator.getCacheDir().resolve(
+					"configuration");
+			Files.createDirectories(dir);
+			String key = P2Utils.sha256(sb.toString());
+			configurationArea = dir.resolve(key);
+
+			FileChannel channel = FileChannel.open(dir.resolve(key + ".lock"),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			FileLock lock;
+			try {
+				lock = channel.tryLock();
+			} catch (OverlappingFileLockException e) {
+				// Held by another framework in this JVM
+				lock = null;
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			if (lock == null) {
+				channel.close();
+				logger.debug("Configuration area {} is in use by another process",
+						configurationArea);
+				return null;
+			}
+			configurationChannel = channel;
+			configurationLock = lock;
+		} catch (IOException e) {
+			logger.debug("Unable to use persistent configuration area", e);
+			return null;
+		}
+
+		logger.debug("Using configuration area: {}", configurationArea);
+		return configurationArea;
+	}
+
+	private synchronized void releaseConfigurationLock() {
+		if (configurationChannel == null)
+			return;
+		try {
+			configurationLock.release();
+			configurationChannel.close();
+		} catch (IOException e) {
+			logger.debug("Unable to release configuration area lock", e);
+		} finally {
+			configurationChannel = null;
+			configurationLock = null;
+		}
+	}
+
 	private void tryActivateBundle(BundleContext bundleContext,
 			String symbolicName) {
 		logger.debug("Trying to activate {}", symbolicName);
@@ -106,6 +229,7 @@ public class DefaultOSGiFramework implements OSGiFramework {
 			bundleContext = launchEquinox();
 			return bundleContext;
 		} catch (Exception e) {
+			releaseConfigurationLock();
 			throw new RuntimeException(e);
 		} finally {
 			Thread.currentThread().setContextClassLoader(classLoader);
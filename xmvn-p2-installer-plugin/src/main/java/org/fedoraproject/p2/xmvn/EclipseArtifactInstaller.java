@@ -19,6 +19,9 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.fedoraproject.p2.installer.Dropin;
 import org.fedoraproject.p2.installer.EclipseArtifact;
@@ -34,7 +37,6 @@ import org.fedoraproject.xmvn.tools.install.ArtifactInstallationException;
 import org.fedoraproject.xmvn.tools.install.ArtifactInstaller;
 import org.fedoraproject.xmvn.tools.install.Directory;
 import org.fedoraproject.xmvn.tools.install.File;
-import org.fedoraproject.xmvn.tools.install.JarUtils;
 import org.fedoraproject.xmvn.tools.install.JavaPackage;
 import org.fedoraproject.xmvn.tools.install.RegularFile;
 import org.fedoraproject.xmvn.tools.install.SymbolicLink;
@@ -42,6 +44,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class EclipseArtifactInstaller implements ArtifactInstaller {
+	private static final String CACHE_DIR_PROPERTY = "fedora.p2.cache";
+
+	private static final String METRICS_PROPERTY = "fedora.p2.metrics";
+
 	private final Logger logger = LoggerFactory
 			.getLogger(EclipseArtifactInstaller.class);
 
@@ -49,6 +55,10 @@ public class EclipseArtifactInstaller implements ArtifactInstaller {
 
 	private final Map<String, JavaPackage> packageMap = new LinkedHashMap<>();
 
+	private final List<CompletableFuture<JarAnalysis>> analyses = new ArrayList<>();
+
+	private ExecutorService executor;
+
 	@Override
 	public void install(JavaPackage targetPackage, ArtifactMetadata am,
 			PackagingRule rule, String basePackageName) {
@@ -59,21 +69,20 @@ public class EclipseArtifactInstaller implements ArtifactInstaller {
 						&& !am.getClassifier().equals("sources-feature")))
 			return;
 
-		boolean isNative = false;
-		if (JarUtils.usesNativeCode(path) || JarUtils.containsNativeCode(path)) {
-			isNative = true;
-		}
-
 		String type = am.getProperties().getProperty("type");
 		boolean isFeature = type.equals("eclipse-feature");
-		EclipseArtifact provide;
-		if (type.equals("eclipse-plugin") || type.equals("eclipse-test-plugin"))
-			provide = new XMvnEclipseArtifact(path, false, isNative, am);
-		else if (isFeature)
-			provide = new XMvnEclipseArtifact(path, true, isNative, am);
-		else
+		if (!isFeature && !type.equals("eclipse-plugin")
+				&& !type.equals("eclipse-test-plugin"))
 			return;
+
+		// Scanning jars for native code is expensive, so let it run in
+		// background while XMvn goes through remaining artifacts
+		CompletableFuture<JarAnalysis> analysis = CompletableFuture
+				.supplyAsync(() -> JarAnalysis.analyze(path), getExecutor());
+		XMvnEclipseArtifact provide = new XMvnEclipseArtifact(path, isFeature,
+				analysis, am);
 		request.addArtifact(provide);
+		analyses.add(analysis);
 
 		Artifact artifact = new DefaultArtifact(am.getGroupId(),
 				am.getArtifactId(), am.getExtension(), am.getClassifier(),
@@ -97,14 +106,38 @@ public class EclipseArtifactInstaller implements ArtifactInstaller {
 		packageMap.put(subpackageId, targetPackage);
 	}
 
+	private ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime()
+					.availableProcessors(), runnable -> {
+				Thread thread = new Thread(runnable, "eclipse-jar-analysis");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return executor;
+	}
+
 	@Override
 	public void postInstallation() throws ArtifactInstallationException {
 		try {
+			CompletableFuture.allOf(
+					analyses.toArray(new CompletableFuture<?>[analyses.size()]))
+					.join();
+			if (executor != null)
+				executor.shutdown();
+
 			Path tempRoot = Files.createTempDirectory("xmvn-root-");
 			request.setBuildRoot(tempRoot);
+			String cacheDir = System.getProperty(CACHE_DIR_PROPERTY);
+			if (cacheDir != null && !cacheDir.isEmpty())
+				request.setCacheDirectory(Paths.get(cacheDir));
+			String metrics = System.getProperty(METRICS_PROPERTY);
+			if (metrics != null && !metrics.isEmpty())
+				request.setMetricsReport(Paths.get(metrics));
 
 			EclipseInstaller installer = new EclipseInstallerFactory()
-					.createEmbeddedInstaller();
+					.createInstaller();
 			EclipseInstallationResult result = installer
 					.performInstallation(request);
 
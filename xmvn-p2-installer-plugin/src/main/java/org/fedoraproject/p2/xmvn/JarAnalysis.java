@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Red Hat Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Red Hat Inc. - initial API and implementation
+ *******************************************************************************/
+package org.fedoraproject.p2.xmvn;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Result of scanning a jar for native code, done in a single pass over its
+ * entries. A jar is considered native if it contains ELF objects or classes
+ * declaring native methods, the same way as XMvn {@code JarUtils} does.
+ */
+class JarAnalysis {
+	private static final Logger logger = LoggerFactory
+			.getLogger(JarAnalysis.class);
+
+	private static final int ELF_MAGIC = 0x7F454C46;
+
+	private static final int CLASS_MAGIC = 0xCAFEBABE;
+
+	private static final int ACC_NATIVE = 0x0100;
+
+	private final boolean isNative;
+
+	private JarAnalysis(boolean isNative) {
+		this.isNative = isNative;
+	}
+
+	public boolean isNative() {
+		return isNative;
+	}
+
+	public static JarAnalysis analyze(Path jar) {
+		try (ZipFile zip = new ZipFile(jar.toFile())) {
+			Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory())
+					continue;
+				try (DataInputStream is = new DataInputStream(
+						new BufferedInputStream(zip.getInputStream(entry)))) {
+					int magic;
+					try {
+						magic = is.readInt();
+					} catch (EOFException e) {
+						continue;
+					}
+					if (magic == ELF_MAGIC) {
+						logger.debug("Native code found inside {}: {}", jar,
+								entry.getName());
+						return new JarAnalysis(true);
+					}
+					if (magic == CLASS_MAGIC
+							&& entry.getName().endsWith(".class")
+							&& hasNativeMethod(is)) {
+						logger.debug("Native method found in {}: {}", jar,
+								entry.getName());
+						return new JarAnalysis(true);
+					}
+				}
+			}
+			logger.trace("Native code not found inside {}", jar);
+		} catch (IOException e) {
+			logger.debug(
+					"I/O exception caught when trying to determine whether JAR contains native code: {}",
+					jar, e);
+		}
+		return new JarAnalysis(false);
+	}
+
+	/**
+	 * Check whether class file, positioned just after its magic number,
+	 * declares any native methods.
+	 */
+	private static boolean hasNativeMethod(DataInputStream is)
+			throws IOException {
+		try {
+			// minor_version, major_version
+			skip(is, 4);
+			int constantPoolCount = is.readUnsignedShort();
+			for (int i = 1; i < constantPoolCount; i++) {
+				int tag = is.readUnsignedByte();
+				switch (tag) {
+				case 1: // Utf8
+					skip(is, is.readUnsignedShort());
+					break;
+				case 7: // Class
+				case 8: // String
+				case 16: // MethodType
+				case 19: // Module
+				case 20: // Package
+					skip(is, 2);
+					break;
+				case 15: // MethodHandle
+					skip(is, 3);
+					break;
+				case 3: // Integer
+				case 4: // Float
+				case 9: // Fieldref
+				case 10: // Methodref
+				case 11: // InterfaceMethodref
+				case 12: // NameAndType
+				case 17: // Dynamic
+				case 18: // InvokeDynamic
+					skip(is, 4);
+					break;
+				case 5: // Long
+				case 6: // Double
+					skip(is, 8);
+					i++;
+					break;
+				default:
+					return false;
+				}
+			}
+			// access_flags, this_class, super_class
+			skip(is, 6);
+			skip(is, 2 * is.readUnsignedShort());
+			int fieldsCount = is.readUnsignedShort();
+			for (int i = 0; i < fieldsCount; i++) {
+				skip(is, 6);
+				skipAttributes(is);
+			}
+			int methodsCount = is.readUnsignedShort();
+			for (int i = 0; i < methodsCount; i++) {
+				if ((is.readUnsignedShort() & ACC_NATIVE) != 0)
+					return true;
+				skip(is, 4);
+				skipAttributes(is);
+			}
+			return false;
+		} catch (EOFException e) {
+			// Truncated class file
+			return false;
+		}
+	}
+
+	private static void skipAttributes(DataInputStream is) throws IOException {
+		int attributesCount = is.readUnsignedShort();
+		for (int i = 0; i < attributesCount; i++) {
+			skip(is, 2);
+			skip(is, is.readInt() & 0xFFFFFFFFL);
+		}
+	}
+
+	private static void skip(InputStream is, long n) throws IOException {
+		while (n > 0) {
+			long skipped = is.skip(n);
+			if (skipped <= 0) {
+				if (is.read() < 0)
+					throw new EOFException();
+				skipped = 1;
+			}
+			n -= skipped;
+		}
+	}
+}
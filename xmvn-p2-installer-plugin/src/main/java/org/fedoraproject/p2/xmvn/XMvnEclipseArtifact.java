@@ -11,6 +11,7 @@
 package org.fedoraproject.p2.xmvn;
 
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 import org.fedoraproject.xmvn.metadata.ArtifactMetadata;
 import org.fedoraproject.p2.installer.EclipseArtifact;
@@ -19,13 +20,25 @@ class XMvnEclipseArtifact extends EclipseArtifact {
 
 	private final ArtifactMetadata metadata;
 
-	public XMvnEclipseArtifact(Path path, boolean isFeature, boolean isNative,
-			ArtifactMetadata metadata) {
-		super(path, isFeature, isNative);
+	private final CompletableFuture<JarAnalysis> analysis;
+
+	public XMvnEclipseArtifact(Path path, boolean isFeature,
+			CompletableFuture<JarAnalysis> analysis, ArtifactMetadata metadata) {
+		super(path, isFeature, false);
+		this.analysis = analysis;
 		this.metadata = metadata;
 	}
 
 	public ArtifactMetadata getMetadata() {
 		return metadata;
 	}
+
+	public CompletableFuture<JarAnalysis> getAnalysis() {
+		return analysis;
+	}
+
+	@Override
+	public boolean isNative() {
+		return analysis.join().isNative();
+	}
 }